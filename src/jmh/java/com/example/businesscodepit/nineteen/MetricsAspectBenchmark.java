@@ -0,0 +1,390 @@
+package com.example.businesscodepit.nineteen;
+
+import ch.qos.logback.classic.LoggerContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     MetricsAspect 的单次调用开销
+ *     1.bare：没有代理的原始方法，作为基线
+ *     2.proxied：同一个方法经过 MetricsAspect，logParameters/logReturn/recordSuccessMetrics 的全部组合
+ *     3.exception：方法抛出异常，分别测试 ignoreException 为 true（返回默认值）和 false（重新抛出）
+ *     异常路径上关闭了 logException，并且抛出的是预先创建好的异常，只衡量切面本身的开销
+ *     Setup 时先各调用一次并检查 MetricsRegistry 中有记录，确认代理确实经过了切面
+ *     nineteen 包的日志级别调到 WARN，后台线程依然会序列化参数，但不会真正输出到控制台
+ *     运行：mvn -Pjmh test-compile exec:exec -Djmh.args="MetricsAspectBenchmark -prof gc"
+ *     结果中的 ns/op 是每次调用的耗时，gc.alloc.rate.norm 是每次调用分配的字节数
+ * @author yaoyong
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsAspectBenchmark {
+    private static final String ARG = "benchmark";
+    private static final Exception FAILURE = new Exception("benchmark failure", null, false, false) {
+    };
+
+    @Param({"false", "true"})
+    public boolean logParameters;
+    @Param({"false", "true"})
+    public boolean logReturn;
+    @Param({"false", "true"})
+    public boolean recordSuccessMetrics;
+
+    private Service bare;
+    private Service proxied;
+    private Service ignoreException;
+    private Service rethrowException;
+    private LogCapturePipeline logCapturePipeline;
+    private MetricsRegistry metricsRegistry;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).getLogger("com.example.businesscodepit.nineteen")
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+        logCapturePipeline = new LogCapturePipeline();
+        ReflectionTestUtils.setField(logCapturePipeline, "objectMapper", new ObjectMapper());
+        logCapturePipeline.start();
+        MetricsAspect aspect = new MetricsAspect();
+        metricsRegistry = new MetricsRegistry();
+        ReflectionTestUtils.setField(aspect, "metricsRegistry", metricsRegistry);
+        ReflectionTestUtils.setField(aspect, "logCapturePipeline", logCapturePipeline);
+        ReflectionTestUtils.setField(aspect, "slowCallRecorder", new SlowCallRecorder());
+
+        String key = flag(logParameters) + flag(logReturn) + flag(recordSuccessMetrics);
+        bare = new Service();
+        proxied = proxy(SERVICES.get(key).get(), aspect);
+        ignoreException = proxy(SERVICES.get(key + "I").get(), aspect);
+        rethrowException = proxied;
+        assertAdvised();
+    }
+
+    /**
+     * 先各调用一次，确认代理确实经过了切面：两个方法都应该在 MetricsRegistry 中有记录，否则测出来的只是普通方法调用的开销
+     */
+    private void assertAdvised() {
+        proxied.call(ARG);
+        try {
+            ignoreException.fail(ARG);
+        } catch (Exception ex) {
+            throw new IllegalStateException("ignoreException proxy rethrew", ex);
+        }
+        Map<String, Map<String, Object>> snapshot = metricsRegistry.snapshot();
+        if (snapshot.size() != 2) {
+            throw new IllegalStateException("MetricsAspect did not advise the benchmark services: " + snapshot.keySet());
+        }
+    }
+
+    /**
+     * logParameters/logReturn 打开时后台线程可能跟不上，队列满后走的是丢弃或调用方输出的路径，
+     * 结束时输出采集管道的统计，dropped 和 callerRuns 不为 0 时说明这部分结果衡量的主要是队列满时的开销
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        logCapturePipeline.stop();
+        System.out.println("log capture stats: " + logCapturePipeline.stats());
+    }
+
+    @Benchmark
+    public String bare() {
+        return bare.call(ARG);
+    }
+
+    @Benchmark
+    public String proxied() {
+        return proxied.call(ARG);
+    }
+
+    @Benchmark
+    public String exceptionIgnored() throws Exception {
+        return ignoreException.fail(ARG);
+    }
+
+    @Benchmark
+    public Object exceptionRethrown() {
+        try {
+            return rethrowException.fail(ARG);
+        } catch (Exception ex) {
+            return ex;
+        }
+    }
+
+    private static Service proxy(Service target, MetricsAspect aspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    private static String flag(boolean value) {
+        return value ? "1" : "0";
+    }
+
+    public static class Service {
+        public String call(String arg) {
+            return arg;
+        }
+
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    //注解的属性只能是编译期常量，所以每种开关组合对应一个子类，key 依次为 logParameters、logReturn、recordSuccessMetrics，后缀 I 表示 ignoreException
+    //切点 within(@Metrics *) 匹配的是方法的声明类型，所以每个子类都要自己声明 call/fail，继承自 Service 的方法不会被切面拦截
+    private static final Map<String, Supplier<Service>> SERVICES = new HashMap<>();
+
+    static {
+        SERVICES.put("000", S000::new);
+        SERVICES.put("001", S001::new);
+        SERVICES.put("010", S010::new);
+        SERVICES.put("011", S011::new);
+        SERVICES.put("100", S100::new);
+        SERVICES.put("101", S101::new);
+        SERVICES.put("110", S110::new);
+        SERVICES.put("111", S111::new);
+        SERVICES.put("000I", S000I::new);
+        SERVICES.put("001I", S001I::new);
+        SERVICES.put("010I", S010I::new);
+        SERVICES.put("011I", S011I::new);
+        SERVICES.put("100I", S100I::new);
+        SERVICES.put("101I", S101I::new);
+        SERVICES.put("110I", S110I::new);
+        SERVICES.put("111I", S111I::new);
+    }
+
+    @Metrics(logParameters = false, logReturn = false, recordSuccessMetrics = false, logException = false)
+    public static class S000 extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    @Metrics(logParameters = false, logReturn = false, recordSuccessMetrics = true, logException = false)
+    public static class S001 extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    @Metrics(logParameters = false, logReturn = true, recordSuccessMetrics = false, logException = false)
+    public static class S010 extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    @Metrics(logParameters = false, logReturn = true, recordSuccessMetrics = true, logException = false)
+    public static class S011 extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    @Metrics(logParameters = true, logReturn = false, recordSuccessMetrics = false, logException = false)
+    public static class S100 extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    @Metrics(logParameters = true, logReturn = false, recordSuccessMetrics = true, logException = false)
+    public static class S101 extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    @Metrics(logParameters = true, logReturn = true, recordSuccessMetrics = false, logException = false)
+    public static class S110 extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    @Metrics(logParameters = true, logReturn = true, recordSuccessMetrics = true, logException = false)
+    public static class S111 extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    @Metrics(logParameters = false, logReturn = false, recordSuccessMetrics = false, logException = false, ignoreException = true)
+    public static class S000I extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    @Metrics(logParameters = false, logReturn = false, recordSuccessMetrics = true, logException = false, ignoreException = true)
+    public static class S001I extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    @Metrics(logParameters = false, logReturn = true, recordSuccessMetrics = false, logException = false, ignoreException = true)
+    public static class S010I extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    @Metrics(logParameters = false, logReturn = true, recordSuccessMetrics = true, logException = false, ignoreException = true)
+    public static class S011I extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    @Metrics(logParameters = true, logReturn = false, recordSuccessMetrics = false, logException = false, ignoreException = true)
+    public static class S100I extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    @Metrics(logParameters = true, logReturn = false, recordSuccessMetrics = true, logException = false, ignoreException = true)
+    public static class S101I extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    @Metrics(logParameters = true, logReturn = true, recordSuccessMetrics = false, logException = false, ignoreException = true)
+    public static class S110I extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+
+    @Metrics(logParameters = true, logReturn = true, recordSuccessMetrics = true, logException = false, ignoreException = true)
+    public static class S111I extends Service {
+        @Override
+        public String call(String arg) {
+            return arg;
+        }
+
+        @Override
+        public String fail(String arg) throws Exception {
+            throw FAILURE;
+        }
+    }
+}
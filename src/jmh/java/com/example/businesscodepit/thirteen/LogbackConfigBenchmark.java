@@ -0,0 +1,185 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.joran.spi.JoranException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     src/main/resources 下 5 个 logback 配置的日志吞吐量，代替手工调用 /logging/performance 和 /logging/manylog
+ *     1.config：加载哪一个配置；配置中的 app.log 和 ./logs 会被替换为临时目录，不会改动项目中的日志文件
+ *     2.payload：small 和 manylog 一样记录 "log-{}"，1mb 和 performance 一样记录 100 万个字符加一个 UUID
+ *     3.producers1 / producers8 / producers32：1、8、32 个线程同时记录日志
+ *     Throughput 模式给出每秒记录的日志条数，SampleTime 模式给出单次记录日志的耗时分布（看 p0.99），
+ *     -prof gc 给出分配速率（gc.alloc.rate.norm 是每条日志分配的字节数）
+ *     控制台输出被替换为空输出流，ConsoleAppender 仍然会完整地格式化和编码，但不计入终端本身的耗时
+ *     每个配置结束时输出 RingBufferAsyncAppender 的丢弃、阻塞、溢出计数；logback 的 AsyncAppender 丢弃日志时不计数，无法给出
+ *     运行：mvn -Pjmh test-compile exec:exec -Djmh.args="LogbackConfigBenchmark -prof gc"
+ *     只跑一部分：-Djmh.args="LogbackConfigBenchmark -p config=logback-test3-spring.xml -p payload=small -prof gc"
+ *     注意：1mb 的 payload 会写出大量数据到临时目录，每个配置结束后删除
+ * @author yaoyong
+ **/
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogbackConfigBenchmark {
+    private static final String LOGGER_NAME = TestLogController.class.getName();
+
+    @Param({"logback-error-test1-spring.xml", "logback-right-test1-spring.xml", "logback-test2-spring.xml",
+            "logback-test3-spring.xml", "logback-work-to-do-spring.xml"})
+    public String config;
+    @Param({"small", "1mb"})
+    public String payload;
+
+    private Path directory;
+    private LoggerContext loggerContext;
+    private Logger logger;
+    private String message;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, JoranException {
+        originalOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+        directory = Files.createTempDirectory("logback-benchmark");
+        loggerContext = new LoggerContext();
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(loggerContext);
+        try (InputStream inputStream = new ByteArrayInputStream(rewrite(config).getBytes(StandardCharsets.UTF_8))) {
+            configurator.doConfigure(inputStream);
+        }
+        logger = loggerContext.getLogger(LOGGER_NAME);
+        message = "small".equals(payload) ? null : IntStream.rangeClosed(1, 1000000)
+                .mapToObj(__ -> "a")
+                .collect(Collectors.joining("")) + UUID.randomUUID().toString();
+    }
+
+    /**
+     * 把配置中的输出路径改到临时目录；logback-right-test1-spring.xml 在 XML 声明前有一个空行，解析前去掉
+     */
+    private String rewrite(String resource) throws IOException {
+        String xml;
+        try (InputStream inputStream = LogbackConfigBenchmark.class.getClassLoader().getResourceAsStream(resource)) {
+            xml = StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8).trim();
+        }
+        String logDir = directory.toString().replace('\\', '/');
+        return xml.replace(">app.log<", ">" + logDir + "/app.log<")
+                .replace("value=\"./logs\"", "value=\"" + logDir + "/logs\"");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Map<String, Object> stats = appenderStats();
+        loggerContext.stop();
+        System.setOut(originalOut);
+        if (!stats.isEmpty()) {
+            System.out.println();
+            System.out.println("appender stats [" + config + ", " + payload + "]: " + stats);
+        }
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    private Map<String, Object> appenderStats() {
+        Map<Appender<ILoggingEvent>, Boolean> seen = new IdentityHashMap<>();
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Logger each : loggerContext.getLoggerList()) {
+            Iterator<Appender<ILoggingEvent>> appenders = each.iteratorForAppenders();
+            while (appenders.hasNext()) {
+                Appender<ILoggingEvent> appender = appenders.next();
+                if (seen.put(appender, Boolean.TRUE) != null) {
+                    continue;
+                }
+                if (appender instanceof RingBufferAsyncAppender) {
+                    result.put(appender.getName(), ((RingBufferAsyncAppender) appender).stats());
+                } else if (appender instanceof MappedFileAppender) {
+                    result.put(appender.getName(), ((MappedFileAppender) appender).stats());
+                } else if (appender instanceof LevelRoutingAppender) {
+                    result.put(appender.getName(), ((LevelRoutingAppender) appender).stats());
+                }
+            }
+        }
+        return result;
+    }
+
+    @State(Scope.Thread)
+    public static class Counter {
+        long value;
+    }
+
+    private void log(Counter counter) {
+        long i = ++counter.value;
+        if (message == null) {
+            logger.info("log-{}", i);
+        } else {
+            logger.info("{} {}", i, message);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void producers1(Counter counter) {
+        log(counter);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void producers8(Counter counter) {
+        log(counter);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void producers32(Counter counter) {
+        log(counter);
+    }
+}
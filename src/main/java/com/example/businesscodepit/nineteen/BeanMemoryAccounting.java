@@ -0,0 +1,61 @@
+package com.example.businesscodepit.nineteen;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     按 Bean 类型统计 SayService 的内存使用情况
+ *     SayHello、SayBye 是 prototype + TARGET_CLASS 代理，每次方法调用都会创建新实例，
+ *     所以不能按实例统计（实例数量本身就是无限增长的），而是按类型汇总：
+ *     创建了多少个实例、调用了多少次、一共生成了多少字节，以及单个实例最多持有多少字节
+ * @author yaoyong
+ **/
+@Component
+public class BeanMemoryAccounting {
+    private final ConcurrentHashMap<String, Account> accounts = new ConcurrentHashMap<>();
+
+    public void instanceCreated(Class<?> beanClass) {
+        account(beanClass).instances.increment();
+    }
+
+    public void generated(Class<?> beanClass, long bytes, long retainedBytes) {
+        Account account = account(beanClass);
+        account.calls.increment();
+        account.generatedBytes.add(bytes);
+        account.maxRetainedBytes.accumulateAndGet(retainedBytes, Math::max);
+    }
+
+    private Account account(Class<?> beanClass) {
+        return accounts.computeIfAbsent(beanClass.getSimpleName(), key -> new Account());
+    }
+
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        accounts.forEach((name, account) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("instances", account.instances.sum());
+            item.put("calls", account.calls.sum());
+            item.put("generatedBytes", account.generatedBytes.sum());
+            item.put("maxRetainedBytesPerInstance", account.maxRetainedBytes.get());
+            result.put(name, item);
+        });
+        return result;
+    }
+
+    private static final class Account {
+        private final LongAdder instances = new LongAdder();
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder generatedBytes = new LongAdder();
+        private final AtomicLong maxRetainedBytes = new AtomicLong();
+    }
+}
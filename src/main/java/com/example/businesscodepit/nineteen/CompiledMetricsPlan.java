@@ -0,0 +1,167 @@
+package com.example.businesscodepit.nineteen;
+
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     MetricsAspect 针对每个连接点方法只解析一次的结果：
+ *     1.合并后的 @Metrics 注解，优先级为 方法 > 类 > 默认注解，各开关展开为 boolean 字段，
+ *       避免每次调用都通过注解的动态代理读取属性。
+ *       注意原来只读取方法上的注解，类上的 @Metrics 只用来匹配切点，现在类上注解的属性会作用于没有单独标注的方法
+ *     2.预先拼好的方法描述 name，以及日志前缀
+ *     3.预先绑定好的 MethodMetrics 指标对象
+ *     4.ignoreException 时要返回的默认值
+ *     5.换算成纳秒的慢调用阈值
+ *     6.配置了 maxConcurrency 时对应的并发限制器
+ *     这样每次调用只需要一次 Map 查找加上计时
+ * @author yaoyong
+ **/
+public class CompiledMetricsPlan {
+    //通过在一个内部类上定义@Metrics注解，然后通过反射获取注解的小技巧，来获得一个默认的@Metrics注解的实例
+    @Metrics
+    private static final class DefaultMetrics {
+    }
+
+    private static final Metrics DEFAULT_METRICS = DefaultMetrics.class.getAnnotation(Metrics.class);
+
+    private final String name;
+    private final boolean recordSuccessMetrics;
+    private final boolean recordFailMetrics;
+    private final boolean logParameters;
+    private final boolean logReturn;
+    private final boolean logException;
+    private final boolean ignoreException;
+    private final double logSampleRate;
+    private final int maxLogPayloadBytes;
+    private final boolean dropLogOnFull;
+    private final long slowThresholdNanos;
+    private final MethodMetrics methodMetrics;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final Object defaultReturnValue;
+    private final String parameterLogPrefix;
+    private final String returnLogPrefix;
+    private final String exceptionLogPrefix;
+
+    private CompiledMetricsPlan(String name, Metrics metrics, MethodMetrics methodMetrics,
+                                ConcurrencyLimiter concurrencyLimiter, Object defaultReturnValue) {
+        this.name = name;
+        this.recordSuccessMetrics = metrics.recordSuccessMetrics();
+        this.recordFailMetrics = metrics.recordFailMetrics();
+        this.logParameters = metrics.logParameters();
+        this.logReturn = metrics.logReturn();
+        this.logException = metrics.logException();
+        this.ignoreException = metrics.ignoreException();
+        this.logSampleRate = metrics.logSampleRate();
+        this.maxLogPayloadBytes = metrics.maxLogPayloadBytes();
+        this.dropLogOnFull = metrics.dropLogOnFull();
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(metrics.slowThresholdMillis());
+        this.methodMetrics = methodMetrics;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.defaultReturnValue = defaultReturnValue;
+        this.parameterLogPrefix = "【入参日志】调用 " + name;
+        this.returnLogPrefix = "【出参日志】调用 " + name;
+        this.exceptionLogPrefix = "【异常日志】调用 " + name;
+    }
+
+    public static CompiledMetricsPlan compile(MethodSignature signature, Class<?> targetClass, MetricsRegistry metricsRegistry) {
+        Method method = signature.getMethod();
+        Metrics metrics = AnnotatedElementUtils.findMergedAnnotation(method, Metrics.class);
+        if (metrics == null && targetClass != null) {
+            metrics = AnnotatedElementUtils.findMergedAnnotation(targetClass, Metrics.class);
+        }
+        if (metrics == null) {
+            metrics = AnnotatedElementUtils.findMergedAnnotation(signature.getDeclaringType(), Metrics.class);
+        }
+        //因为需要默认对所有@RestController标记的Web控制器实现@Metrics注解的功能，在这种情况下方法和类上都没有@Metrics注解，使用默认注解
+        if (metrics == null) {
+            metrics = DEFAULT_METRICS;
+        }
+        String name = String.format("【%s】【%s】", signature.getDeclaringType().toString(), signature.toLongString());
+        ConcurrencyLimiter concurrencyLimiter = metrics.maxConcurrency() > 0
+                ? metricsRegistry.limiter(name, metrics.maxConcurrency(), metrics.adaptive()) : null;
+        Class<?> returnType = signature.getReturnType();
+        return new CompiledMetricsPlan(name, metrics, metricsRegistry.get(name, metrics.windowSeconds()), concurrencyLimiter,
+                MetricsAspect.getDefaultValue(returnType));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isRecordSuccessMetrics() {
+        return recordSuccessMetrics;
+    }
+
+    public boolean isRecordFailMetrics() {
+        return recordFailMetrics;
+    }
+
+    public boolean isLogParameters() {
+        return logParameters;
+    }
+
+    public boolean isLogReturn() {
+        return logReturn;
+    }
+
+    public boolean isLogException() {
+        return logException;
+    }
+
+    public boolean isIgnoreException() {
+        return ignoreException;
+    }
+
+    public double getLogSampleRate() {
+        return logSampleRate;
+    }
+
+    public int getMaxLogPayloadBytes() {
+        return maxLogPayloadBytes;
+    }
+
+    public boolean isDropLogOnFull() {
+        return dropLogOnFull;
+    }
+
+    /**
+     * @return 慢调用阈值的纳秒数，小于等于 0 表示不记录慢调用
+     */
+    public long getSlowThresholdNanos() {
+        return slowThresholdNanos;
+    }
+
+    public MethodMetrics getMethodMetrics() {
+        return methodMetrics;
+    }
+
+    /**
+     * @return 没有配置 maxConcurrency 时返回 null
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    public Object getDefaultReturnValue() {
+        return defaultReturnValue;
+    }
+
+    public String getParameterLogPrefix() {
+        return parameterLogPrefix;
+    }
+
+    public String getReturnLogPrefix() {
+        return returnLogPrefix;
+    }
+
+    public String getExceptionLogPrefix() {
+        return exceptionLogPrefix;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.businesscodepit.nineteen;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     单个方法的并发（在途请求数）限制，对应 @Metrics#maxConcurrency
+ *     超过限制时直接拒绝，而不是让 Tomcat 线程都堆在一个慢接口上，把其它接口也拖垮
+ *     adaptive 为 true 时按照 AIMD 的方式根据耗时动态调整上限：
+ *     1.每 SAMPLE_WINDOW 次调用计算一次平均耗时，并记录观察到的最小平均耗时 minRtt 作为"无排队"时的基准
+ *     2.平均耗时超过 minRtt * TOLERANCE，说明请求开始排队，上限乘以 BACKOFF_RATIO（乘性减）
+ *     3.否则如果在途请求数已经达到上限（限制器处于饱和状态），上限加 1（加性增），最多不超过 maxConcurrency
+ *     4.每隔 MIN_RTT_RESET_WINDOWS 个窗口用当前平均耗时重置 minRtt，适应下游耗时的长期变化
+ *     窗口内的调用次数和总耗时打包在同一个 AtomicLong 中（高 16 位次数，低 48 位纳秒），累加和凑满窗口后的清零是同一次 CAS，
+ *     不会因为清零和并发累加交错而丢失样本
+ * @author yaoyong
+ **/
+public class ConcurrencyLimiter {
+    static final int SAMPLE_WINDOW = 100;
+    static final double TOLERANCE = 2.0;
+    static final double BACKOFF_RATIO = 0.9;
+    static final int MIN_RTT_RESET_WINDOWS = 100;
+
+    private final int maxConcurrency;
+    private final boolean adaptive;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+    private final LongAdder rejected = new LongAdder();
+
+    private static final int COUNT_SHIFT = 48;
+    private static final long NANOS_MASK = (1L << COUNT_SHIFT) - 1;
+    private final AtomicLong sample = new AtomicLong();
+    private volatile long minRttNanos = Long.MAX_VALUE;
+    private long windows;
+
+    public ConcurrencyLimiter(int maxConcurrency, boolean adaptive) {
+        this.maxConcurrency = maxConcurrency;
+        this.adaptive = adaptive;
+        this.limit = maxConcurrency;
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(long elapsedNanos) {
+        int current = inFlight.getAndDecrement();
+        if (!adaptive) {
+            return;
+        }
+        //只有凑满一个窗口的那个线程负责调整上限
+        while (true) {
+            long packed = sample.get();
+            long count = (packed >>> COUNT_SHIFT) + 1;
+            long nanos = Math.min(NANOS_MASK, (packed & NANOS_MASK) + Math.max(0, elapsedNanos));
+            boolean windowFull = count >= SAMPLE_WINDOW;
+            if (sample.compareAndSet(packed, windowFull ? 0 : (count << COUNT_SHIFT) | nanos)) {
+                if (windowFull) {
+                    adjust(nanos / count, current);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 占用名额后没有真正执行就放弃了（例如执行前的准备工作抛了异常），只归还名额，不计入耗时样本
+     */
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    private synchronized void adjust(long averageNanos, int inFlightAtSample) {
+        if (++windows % MIN_RTT_RESET_WINDOWS == 0 || averageNanos < minRttNanos) {
+            minRttNanos = averageNanos;
+        }
+        int newLimit = limit;
+        if (averageNanos > minRttNanos * TOLERANCE) {
+            newLimit = Math.max(1, (int) (newLimit * BACKOFF_RATIO));
+        } else if (inFlightAtSample >= newLimit) {
+            newLimit = Math.min(maxConcurrency, newLimit + 1);
+        }
+        limit = newLimit;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("maxConcurrency", maxConcurrency);
+        result.put("adaptive", adaptive);
+        result.put("limit", limit);
+        result.put("inFlight", inFlight.get());
+        result.put("rejected", rejected.sum());
+        if (adaptive) {
+            long minRtt = minRttNanos;
+            result.put("minRttMicros", minRtt == Long.MAX_VALUE ? 0 : minRtt / 1000);
+        }
+        return result;
+    }
+}
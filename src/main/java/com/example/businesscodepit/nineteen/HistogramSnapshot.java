@@ -0,0 +1,72 @@
+package com.example.businesscodepit.nineteen;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     LatencyHistogram 某一时刻的只读拷贝，百分位数按桶的上界返回，
+ *     因此 p99 等结果会略微偏大（不超过一个子桶的宽度），不会偏小
+ * @author yaoyong
+ **/
+public class HistogramSnapshot {
+    private final long[] counts;
+    private final long totalCount;
+
+    HistogramSnapshot(long[] counts) {
+        this.counts = counts;
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        this.totalCount = total;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @param percentile 取值范围 0~100，例如 99.9
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long countAtPercentile = (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount);
+        if (countAtPercentile < 1) {
+            countAtPercentile = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= countAtPercentile) {
+                return LatencyHistogram.highestValueOf(i);
+            }
+        }
+        return getMax();
+    }
+
+    public long getMax() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] != 0) {
+                return LatencyHistogram.highestValueOf(i);
+            }
+        }
+        return 0;
+    }
+
+    public double getMean() {
+        if (totalCount == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                //取桶的中点作为该桶的代表值
+                sum += counts[i] * ((LatencyHistogram.lowestValueOf(i) + LatencyHistogram.highestValueOf(i)) / 2.0);
+            }
+        }
+        return sum / totalCount;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.businesscodepit.nineteen;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     仿照 HdrHistogram 的对数分桶直方图，用于记录方法耗时
+ *     1.小于 2 * SUB_BUCKET_COUNT 的值一值一桶，精确记录
+ *     2.更大的值按照最高位所在的 2 的幂次分段，每段再等分为 SUB_BUCKET_COUNT 个子桶，
+ *       相对误差不超过 1/SUB_BUCKET_COUNT（约 3%）
+ *     3.计数存放在 AtomicLongArray（底层就是 long[]）中，写入只是一次 getAndIncrement，
+ *       无锁也不分配对象；读取快照时逐桶读取，不需要暂停写入方
+ *     超过 MAX_TRACKABLE_VALUE 的值会被记到最后一个桶里
+ * @author yaoyong
+ **/
+public class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * 最大可精确分桶的值 2^36，按微秒计算约 19 小时，足够覆盖方法耗时
+     */
+    static final int MAX_VALUE_BITS = 36;
+    static final long MAX_TRACKABLE_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    public void record(long value) {
+        counts.getAndIncrement(bucketIndex(value));
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.lazySet(i, 0);
+        }
+    }
+
+    /**
+     * 读取当前各桶计数，写入方可以继续并发写入，快照只保证每个桶自身是一致的
+     */
+    public HistogramSnapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        copyInto(copy);
+        return new HistogramSnapshot(copy);
+    }
+
+    /**
+     * 把当前计数累加到 target 中，用于把多个直方图合并成一个快照
+     */
+    void copyInto(long[] target) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            target[i] += counts.get(i);
+        }
+    }
+
+    static int bucketIndex(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAX_TRACKABLE_VALUE) {
+            value = MAX_TRACKABLE_VALUE;
+        }
+        if (value < (SUB_BUCKET_COUNT << 1)) {
+            return (int) value;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long lowestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return ((long) SUB_BUCKET_COUNT + subBucket) << shift;
+    }
+
+    static long highestValueOf(int index) {
+        return index + 1 < BUCKET_COUNT ? lowestValueOf(index + 1) - 1 : MAX_TRACKABLE_VALUE;
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.businesscodepit.nineteen;
+
+import com.example.businesscodepit.util.MpscRingBuffer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.ui.Model;
+import org.springframework.validation.Errors;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     @Metrics 入参/出参日志的异步采集管道
+ *     原来 MetricsAspect 在业务线程上同步执行 objectMapper.writeValueAsString，
+ *     大对象的序列化和日志写入直接拉高了接口的尾延迟。现在：
+ *     1.业务线程做采样判断，然后把参数或返回值序列化到一个最多 maxLogPayloadBytes 字节的缓冲区中，
+ *       写满时立即中断序列化（最多多序列化 Jackson 内部约 8KB 的输出缓冲区），所以不管 DTO 多大，业务线程上的开销都有上限；
+ *       请求返回后 servlet 对象可能被容器复用、DTO 可能被修改，在业务线程上生成文本也就不需要再做快照
+ *     2.servlet 请求/响应、流、上传文件、Model、BindingResult 等基础设施对象不序列化，只记录类型名
+ *     3.截断后的文本放入有界的 MpscRingBuffer，后台单线程只负责输出日志；队列空时后台线程 park，
+ *       业务线程入队后发现它在等待才 unpark，空闲时不会周期性唤醒
+ *     4.队列满时按照 dropLogOnFull 决定直接丢弃，还是退化为在业务线程上同步输出
+ *     toString 方式输出的返回值只能先完整调用 toString 再截断（CharSequence 除外），开销取决于对象自己的 toString
+ * @author yaoyong
+ **/
+@Component
+@Slf4j
+public class LogCapturePipeline {
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final String TRUNCATED = "...(truncated)";
+    private static final List<Class<?>> INFRASTRUCTURE_TYPES = Arrays.asList(
+            ServletRequest.class, ServletResponse.class, HttpSession.class, InputStream.class, OutputStream.class,
+            Reader.class, Writer.class, MultipartFile.class, Model.class, Errors.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final MpscRingBuffer<CapturedLog> queue = new MpscRingBuffer<>(QUEUE_CAPACITY);
+    private final LongAdder captured = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder truncated = new LongAdder();
+    private volatile boolean running = true;
+    //后台线程准备 park 时置为 true，业务线程入队后看到它才去 unpark
+    private volatile boolean drainerParked;
+    private Thread drainer;
+
+    @PostConstruct
+    public void start() {
+        drainer = new Thread(this::drain, "metrics-log-capture");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(drainer);
+        drainer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    public void captureParameters(CompiledMetricsPlan plan, String url, Object[] args) {
+        capture(plan, plan.getParameterLogPrefix(), url, " 的参数是：【", args, true);
+    }
+
+    public void captureReturn(CompiledMetricsPlan plan, String url, Object returnValue) {
+        capture(plan, plan.getReturnLogPrefix(), url, " 的返回是：【", returnValue, false);
+    }
+
+    private void capture(CompiledMetricsPlan plan, String prefix, String url, String label, Object payload, boolean json) {
+        double sampleRate = plan.getLogSampleRate();
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            sampledOut.increment();
+            return;
+        }
+        //队列已满且允许丢弃时不用再生成快照
+        if (plan.isDropLogOnFull() && queue.size() >= queue.capacity()) {
+            dropped.increment();
+            return;
+        }
+        CapturedLog capturedLog = new CapturedLog(prefix + url + label, snapshot(payload, json, plan.getMaxLogPayloadBytes()));
+        if (queue.offer(capturedLog)) {
+            captured.increment();
+            if (drainerParked) {
+                LockSupport.unpark(drainer);
+            }
+        } else if (plan.isDropLogOnFull()) {
+            dropped.increment();
+        } else {
+            //队列满又不允许丢弃时，由业务线程自己输出，类似线程池的 CallerRunsPolicy
+            callerRuns.increment();
+            write(capturedLog);
+        }
+    }
+
+    private void drain() {
+        while (running || queue.size() > 0) {
+            CapturedLog capturedLog = queue.poll();
+            if (capturedLog == null) {
+                //先声明要 park 再检查一次队列，和业务线程的"先入队再检查 drainerParked"配合，不会错过唤醒
+                drainerParked = true;
+                if (running && queue.size() == 0) {
+                    LockSupport.park(this);
+                }
+                drainerParked = false;
+                continue;
+            }
+            try {
+                write(capturedLog);
+            } catch (Exception ex) {
+                log.warn("write captured log failed", ex);
+            }
+        }
+    }
+
+    private void write(CapturedLog capturedLog) {
+        log.info(capturedLog.message + capturedLog.text + "】");
+    }
+
+    /**
+     * 在业务线程上把参数或返回值渲染为截断后的日志文本，规则见类注释；参数数组逐个元素替换掉基础设施对象
+     */
+    String snapshot(Object payload, boolean json, int maxBytes) {
+        if (payload instanceof Object[]) {
+            Object[] args = (Object[]) payload;
+            Object[] copy = new Object[args.length];
+            for (int i = 0; i < args.length; i++) {
+                copy[i] = replaceInfrastructure(args[i]);
+            }
+            return render(copy, json, maxBytes);
+        }
+        return render(replaceInfrastructure(payload), json, maxBytes);
+    }
+
+    private static Object replaceInfrastructure(Object value) {
+        if (value == null) {
+            return null;
+        }
+        for (Class<?> type : INFRASTRUCTURE_TYPES) {
+            if (type.isInstance(value)) {
+                return "<" + type.getSimpleName() + ">";
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 把参数或返回值渲染为日志文本，json 为 true 时使用 JSON 序列化，否则使用 toString，超过 maxBytes 字节（UTF-8）时截断
+     */
+    String render(Object payload, boolean json, int maxBytes) {
+        if (!json) {
+            String text;
+            try {
+                //每个字符至少占 1 字节，超长的 CharSequence 只取前 maxBytes + 1 个字符，足够判断截断，不用整个转换成 String
+                text = maxBytes > 0 && payload instanceof CharSequence && ((CharSequence) payload).length() > maxBytes
+                        ? ((CharSequence) payload).subSequence(0, maxBytes + 1).toString()
+                        : String.valueOf(payload);
+            } catch (RuntimeException ex) {
+                return "<toString failed: " + ex.getMessage() + ">";
+            }
+            if (maxBytes <= 0) {
+                return text;
+            }
+            String prefix = truncateUtf8(text, maxBytes);
+            if (prefix != null) {
+                truncated.increment();
+                return prefix + TRUNCATED;
+            }
+            return text;
+        }
+        LimitedOutputStream out = new LimitedOutputStream(maxBytes);
+        try {
+            objectMapper.writeValue(out, payload);
+        } catch (IOException | RuntimeException ex) {
+            //Jackson 默认会把序列化过程中的异常包装成 JsonMappingException，所以这里根据标记判断是否是超过上限
+            if (!out.isLimitReached()) {
+                return "<serialize failed: " + ex.getMessage() + ">";
+            }
+        }
+        if (out.isLimitReached()) {
+            truncated.increment();
+            return out.toString() + TRUNCATED;
+        }
+        return out.toString();
+    }
+
+    /**
+     * 返回 UTF-8 编码后不超过 maxBytes 字节的最长前缀，不会拆开代理对；整个字符串都放得下时返回 null
+     */
+    static String truncateUtf8(String text, int maxBytes) {
+        //每个字符至少 1 字节、最多 3 字节（代理对 2 个字符共 4 字节），先用长度快速判断
+        if (text.length() * 3 <= maxBytes) {
+            return null;
+        }
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean pair = Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1));
+            int width = c < 0x80 ? 1 : c < 0x800 ? 2 : pair ? 4 : 3;
+            if (bytes + width > maxBytes) {
+                return text.substring(0, i);
+            }
+            bytes += width;
+            if (pair) {
+                i++;
+            }
+        }
+        return null;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("captured", captured.sum());
+        result.put("sampledOut", sampledOut.sum());
+        result.put("dropped", dropped.sum());
+        result.put("callerRuns", callerRuns.sum());
+        result.put("truncated", truncated.sum());
+        result.put("queued", queue.size());
+        return result;
+    }
+
+    /**
+     * 业务线程上已经渲染、截断过的文本，后台线程直接输出
+     */
+    private static final class CapturedLog {
+        private final String message;
+        private final String text;
+
+        private CapturedLog(String message, String text) {
+            this.message = message;
+            this.text = text;
+        }
+    }
+
+    /**
+     * 超过上限后直接抛异常中断序列化，避免为了一条日志把整个大对象都序列化一遍
+     */
+    private static final class LimitedOutputStream extends ByteArrayOutputStream {
+        private final int limit;
+        private boolean limitReached;
+
+        private LimitedOutputStream(int limit) {
+            super(limit > 0 ? Math.min(limit, 256) : 256);
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (limit > 0 && count >= limit) {
+                limitReached = true;
+                throw new PayloadLimitException();
+            }
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            if (limit <= 0) {
+                super.write(b, off, len);
+                return;
+            }
+            int remaining = limit - count;
+            super.write(b, off, Math.min(len, remaining));
+            if (len > remaining) {
+                limitReached = true;
+                throw new PayloadLimitException();
+            }
+        }
+
+        private boolean isLimitReached() {
+            return limitReached;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return new String(buf, 0, count, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class PayloadLimitException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private PayloadLimitException() {
+            super("payload limit reached", null, false, false);
+        }
+    }
+}
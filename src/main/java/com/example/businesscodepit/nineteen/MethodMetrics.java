@@ -0,0 +1,69 @@
+package com.example.businesscodepit.nineteen;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     单个方法的调用指标：成功/失败次数使用 LongAdder（内部按线程分段累加，高并发下不会在同一个
+ *     缓存行上 CAS 竞争），耗时记录到对数分桶的 LatencyHistogram 中
+ *     调用方传入纳秒耗时，直方图按微秒分辨率记录，1ms 以内的调用也能区分开
+ *     另外可选一个 RollingWindow，统计最近一段时间的调用量、错误率和耗时
+ * @author yaoyong
+ **/
+public class MethodMetrics {
+    private final String name;
+    private final LongAdder successCount = new LongAdder();
+    private final LongAdder failCount = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final RollingWindow window;
+
+    public MethodMetrics(String name, int windowSeconds) {
+        this.name = name;
+        this.window = windowSeconds > 0 ? new RollingWindow(windowSeconds) : null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void recordSuccess(long elapsedNanos, long nowNanos) {
+        successCount.increment();
+        latency.record(elapsedNanos / 1000);
+        if (window != null) {
+            window.record(nowNanos, elapsedNanos, false);
+        }
+    }
+
+    public void recordFail(long elapsedNanos, long nowNanos) {
+        failCount.increment();
+        latency.record(elapsedNanos / 1000);
+        if (window != null) {
+            window.record(nowNanos, elapsedNanos, true);
+        }
+    }
+
+    /**
+     * 生成给 /metrics 接口输出的快照，读取过程中不阻塞正在写入的线程
+     */
+    public Map<String, Object> snapshot(long nowNanos) {
+        HistogramSnapshot histogram = latency.snapshot();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("success", successCount.sum());
+        result.put("fail", failCount.sum());
+        result.put("meanMicros", Math.round(histogram.getMean()));
+        result.put("p50Micros", histogram.getValueAtPercentile(50));
+        result.put("p90Micros", histogram.getValueAtPercentile(90));
+        result.put("p99Micros", histogram.getValueAtPercentile(99));
+        result.put("p999Micros", histogram.getValueAtPercentile(99.9));
+        result.put("maxMicros", histogram.getMax());
+        if (window != null) {
+            result.put("window", window.snapshot(nowNanos));
+        }
+        return result;
+    }
+}
@@ -58,4 +58,54 @@ public @interface Metrics {
      * @return
      */
     boolean ignoreException() default false;
+
+    /**
+     * 入参/出参日志的采样率，取值 0~1，默认全部记录
+     *
+     * @return
+     */
+    double logSampleRate() default 1.0;
+
+    /**
+     * 单条入参/出参日志序列化后的最大字节数，超过后截断，小于等于 0 表示不限制，默认 4KB
+     *
+     * @return
+     */
+    int maxLogPayloadBytes() default 4096;
+
+    /**
+     * 异步日志队列满时是否直接丢弃，默认开启；关闭后由业务线程同步输出日志
+     *
+     * @return
+     */
+    boolean dropLogOnFull() default true;
+
+    /**
+     * 慢调用阈值，耗时超过该值时记录本次调用的参数和请求URL，小于等于 0 表示不记录，默认关闭
+     *
+     * @return
+     */
+    long slowThresholdMillis() default -1;
+
+    /**
+     * 滑动窗口的长度，用于统计最近一段时间的调用量、错误率和耗时百分位数，小于等于 0 表示不统计，默认不统计
+     * 每个窗口有 RollingWindow.BUCKET_COUNT 个耗时直方图（约 56KB），只给需要观察近期趋势的方法打开
+     *
+     * @return
+     */
+    int windowSeconds() default 0;
+
+    /**
+     * 方法允许的最大并发（在途请求）数，超过后直接抛出 BusinessException 快速失败，小于等于 0 表示不限制，默认不限制
+     *
+     * @return
+     */
+    int maxConcurrency() default -1;
+
+    /**
+     * 是否根据观察到的耗时在 1~maxConcurrency 之间自适应调整并发上限，默认关闭
+     *
+     * @return
+     */
+    boolean adaptive() default false;
 }
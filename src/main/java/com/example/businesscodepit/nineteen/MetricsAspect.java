@@ -1,12 +1,15 @@
 package com.example.businesscodepit.nineteen;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.businesscodepit.twelve.handle.BusinessException;
+import com.example.businesscodepit.twelve.handle.SampledExceptionLogger;
+import com.example.businesscodepit.twelve.handle.StacklessBusinessException;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestAttributes;
@@ -15,9 +18,9 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 
 import javax.servlet.http.HttpServletRequest;
 import java.lang.reflect.Array;
-import java.time.Duration;
-import java.time.Instant;
+import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toMap;
@@ -35,10 +38,23 @@ import static java.util.stream.Collectors.toMap;
 @Component
 @Slf4j
 public class MetricsAspect {
-    //让Spring帮我们注入ObjectMapper，以方便通过JSON序列化来记录方法入参和出参
-
+    //方法入参和出参日志交给异步采集管道，在后台线程通过JSON序列化输出
+    @Autowired
+    private LogCapturePipeline logCapturePipeline;
+    //成功失败的打点记录到进程内的指标注册中心，通过 /metrics 接口查看
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+    //超过慢调用阈值时记录参数和请求URL
     @Autowired
-    private ObjectMapper objectMapper;
+    private SlowCallRecorder slowCallRecorder;
+    //超过 @Metrics#maxConcurrency 时返回给客户端的错误码
+    public static final int CONCURRENCY_LIMITED_CODE = 4290;
+    private static final String CONCURRENCY_LIMITED_MESSAGE = "请求过多，请稍后再试";
+    //业务异常是预期内的大量结果，和 RestControllerExceptionHandler 一样按错误码限流记录，不再每次都输出 ERROR 级别的异常栈
+    private static final int BUSINESS_LOG_PERMITS_PER_SECOND = 10;
+    private final SampledExceptionLogger businessExceptionLogger = new SampledExceptionLogger(log, BUSINESS_LOG_PERMITS_PER_SECOND);
+    //每个连接点方法对应的执行计划，只在第一次调用时解析
+    private final ConcurrentHashMap<Method, CompiledMetricsPlan> plans = new ConcurrentHashMap<>();
 
     //实现一个返回Java基本类型默认值的工具。其实，你也可以逐一写很多if-else判断类型，然后手动设置其默认值。这里为了减少代码量用了一个小技巧，即通过初始化一个具有1个元素的数组，然后通过获取这个数组的值来获取基本类型默认值
     private static final Map<Class<?>, Object> DEFAULT_VALUES = Stream
@@ -60,50 +76,97 @@ public class MetricsAspect {
 
     @Around("controllerBean() || withMetricsAnnotation())")
     public Object metrics(ProceedingJoinPoint pjp) throws Throwable {
-        //通过连接点获取方法签名和方法上Metrics注解，并根据方法签名生成日志中要输出的方法定义描述
+        //通过连接点获取方法签名，再按方法取出预先编译好的执行计划（合并后的注解开关、方法描述以及指标对象），每个方法只反射解析一次
         MethodSignature signature = (MethodSignature) pjp.getSignature();
-        Metrics metrics = signature.getMethod().getAnnotation(Metrics.class);
-
-        String name = String.format("【%s】【%s】", signature.getDeclaringType().toString(), signature.toLongString());
-        //因为需要默认对所有@RestController标记的Web控制器实现@Metrics注解的功能，在这种情况下方法上必然是没有@Metrics注解的，我们需要获取一个默认注解。虽然可以手动实例化一个@Metrics注解的实例出来，但为了节省代码行数，我们通过在一个内部类上定义@Metrics注解方式，然后通过反射获取注解的小技巧，来获得一个默认的@Metrics注解的实例
-        if (metrics == null) {
-            @Metrics
-            final class c {}
-            metrics = c.class.getAnnotation(Metrics.class);
-        }
-        //尝试从请求上下文（如果有的话）获得请求URL，以方便定位问题
-        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
-        if (requestAttributes != null) {
-            HttpServletRequest request = ((ServletRequestAttributes) requestAttributes).getRequest();
-            if (request != null)
-                name += String.format("【%s】", request.getRequestURL().toString());
+        Method method = signature.getMethod();
+        CompiledMetricsPlan plan = plans.get(method);
+        if (plan == null) {
+            plan = plans.computeIfAbsent(method, m -> CompiledMetricsPlan.compile(signature,
+                    pjp.getTarget() == null ? null : AopUtils.getTargetClass(pjp.getTarget()), metricsRegistry));
         }
+        //配置了并发上限时先占用一个名额，满了就直接抛出业务异常快速失败，由 RestControllerExceptionHandler 转换为错误码；过载时拒绝量很大，不收集异常栈
+        //放在采集入参之前，被拒绝的调用不用再付出生成参数快照的开销
+        ConcurrencyLimiter limiter = plan.getConcurrencyLimiter();
+        if (limiter != null && !limiter.tryAcquire())
+            throw new StacklessBusinessException(CONCURRENCY_LIMITED_MESSAGE, CONCURRENCY_LIMITED_CODE);
+        //尝试从请求上下文（如果有的话）获得请求URL，以方便定位问题，只有需要输出日志时才拼接
+        String url = plan.isLogParameters() || plan.isLogReturn() ? currentRequestUrl() : null;
         //实现的是入参的日志输出
-        if (metrics.logParameters())
-            log.info(String.format("【入参日志】调用 %s 的参数是：【%s】", name, objectMapper.writeValueAsString(pjp.getArgs())));
+        //采集入参已经在占用名额之后，采集失败时要把名额还回去，否则在途计数会永久泄漏
+        if (plan.isLogParameters()) {
+            try {
+                logCapturePipeline.captureParameters(plan, url, pjp.getArgs());
+            } catch (RuntimeException ex) {
+                if (limiter != null)
+                    limiter.cancel();
+                throw ex;
+            }
+        }
         //实现连接点方法的执行，以及成功失败的打点，出现异常的时候还会记录日志
+        //计时使用 MetricsRegistry 提供的单调纳秒时钟
+        Ticker ticker = metricsRegistry.getTicker();
         Object returnValue;
-        Instant start = Instant.now();
+        //成功时的耗时，慢调用记录放到 try 之外，记录过程本身出问题也不会把成功的调用当成失败处理
+        long succeededNanos = -1;
+        long start = ticker.read();
         try {
             returnValue = pjp.proceed();
-            if (metrics.recordSuccessMetrics())
-                //在生产级代码中，我们应考虑使用类似Micrometer的指标框架，把打点信息记录到时间序列数据库中，实现通过图表来查看方法的调用次数和执行时间，在设计篇我们会重点介绍
-                log.info(String.format("【成功打点】调用 %s 成功，耗时：%d ms", name, Duration.between(start, Instant.now()).toMillis()));
+            long end = ticker.read();
+            succeededNanos = end - start;
+            if (plan.isRecordSuccessMetrics())
+                //打点不再输出日志，而是记录到 MetricsRegistry 的计数器和耗时直方图中，避免每次调用都格式化字符串并同步写日志
+                plan.getMethodMetrics().recordSuccess(succeededNanos, end);
         } catch (Exception ex) {
-            if (metrics.recordFailMetrics())
-                log.info(String.format("【失败打点】调用 %s 失败，耗时：%d ms", name, Duration.between(start, Instant.now()).toMillis()));
-            if (metrics.logException())
-                log.error(String.format("【异常日志】调用 %s 出现异常！", name), ex);
+            long end = ticker.read();
+            if (plan.isRecordFailMetrics())
+                plan.getMethodMetrics().recordFail(end - start, end);
+            recordIfSlow(plan, url, pjp, end - start, true);
+            if (plan.isLogException()) {
+                String requestUrl = url == null ? currentRequestUrl() : url;
+                if (ex instanceof BusinessException)
+                    businessExceptionLogger.warn(((BusinessException) ex).getCode(), "{}{} 出现业务异常！", plan.getExceptionLogPrefix(), requestUrl, ex);
+                else
+                    log.error(plan.getExceptionLogPrefix() + requestUrl + " 出现异常！", ex);
+            }
 
-            //忽略异常的时候，使用一开始定义的getDefaultValue方法，来获取基本类型的默认值
-            if (metrics.ignoreException())
-                returnValue = getDefaultValue(signature.getReturnType());
+            //忽略异常的时候，返回编译执行计划时通过getDefaultValue方法预先取好的基本类型默认值
+            if (plan.isIgnoreException())
+                returnValue = plan.getDefaultReturnValue();
             else
                 throw ex;
+        } finally {
+            if (limiter != null)
+                limiter.release(ticker.read() - start);
         }
+        if (succeededNanos >= 0)
+            recordIfSlow(plan, url, pjp, succeededNanos, false);
         //实现了返回值的日志输出
-        if (metrics.logReturn())
-            log.info(String.format("【出参日志】调用 %s 的返回是：【%s】", name, returnValue));
+        if (plan.isLogReturn())
+            logCapturePipeline.captureReturn(plan, url, returnValue);
         return returnValue;
     }
+
+    /**
+     * 慢调用记录只是辅助诊断，渲染参数、获取 URL 出错时只输出警告，不影响调用本身的结果，也不会掩盖业务方法抛出的异常
+     */
+    private void recordIfSlow(CompiledMetricsPlan plan, String url, ProceedingJoinPoint pjp, long elapsedNanos, boolean failed) {
+        long threshold = plan.getSlowThresholdNanos();
+        if (threshold <= 0 || elapsedNanos <= threshold)
+            return;
+        try {
+            slowCallRecorder.record(plan, url == null ? currentRequestUrl() : url, pjp.getArgs(), elapsedNanos, failed);
+        } catch (RuntimeException ex) {
+            log.warn("record slow call failed: " + plan.getExceptionLogPrefix(), ex);
+        }
+    }
+
+    private static String currentRequestUrl() {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes instanceof ServletRequestAttributes) {
+            HttpServletRequest request = ((ServletRequestAttributes) requestAttributes).getRequest();
+            if (request != null)
+                return "【" + request.getRequestURL() + "】";
+        }
+        return "";
+    }
 }
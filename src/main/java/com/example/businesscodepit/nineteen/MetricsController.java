@@ -0,0 +1,50 @@
+package com.example.businesscodepit.nineteen;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     输出 MetricsRegistry 中各方法的调用次数以及耗时百分位数（单位微秒）
+ * @author yaoyong
+ **/
+@RestController
+@RequestMapping("metrics")
+@Metrics(logParameters = false, logReturn = false)
+public class MetricsController {
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+    @Autowired
+    private LogCapturePipeline logCapturePipeline;
+    @Autowired
+    private SlowCallRecorder slowCallRecorder;
+
+    @GetMapping
+    public Map<String, Map<String, Object>> metrics() {
+        return metricsRegistry.snapshot();
+    }
+
+    /**
+     * 入参/出参异步日志的采集、采样、丢弃以及截断次数
+     */
+    @GetMapping("capture")
+    public Map<String, Object> capture() {
+        return logCapturePipeline.stats();
+    }
+
+    /**
+     * 最近的慢调用，包括参数和请求URL
+     */
+    @GetMapping("slow")
+    public List<Map<String, Object>> slow() {
+        return slowCallRecorder.recent();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.businesscodepit.nineteen;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     进程内的指标注册中心，代替原来 MetricsAspect 中通过打日志实现的"打点"
+ *     每个方法对应一个 MethodMetrics，写入全部无锁，读取通过 snapshot 生成快照
+ * @author yaoyong
+ **/
+@Component
+public class MetricsRegistry {
+    private final ConcurrentHashMap<String, MethodMetrics> metrics = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    //计时使用单调的纳秒时钟，容器中没有自定义的 Ticker 时使用 System.nanoTime，滑动窗口的分桶也以它为准
+    @Autowired(required = false)
+    private Ticker ticker = Ticker.systemTicker();
+
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    public MethodMetrics get(String name, int windowSeconds) {
+        //先 get 再 computeIfAbsent，避免 JDK8 中 computeIfAbsent 即使 key 存在也会加锁的问题
+        MethodMetrics methodMetrics = metrics.get(name);
+        if (methodMetrics == null) {
+            methodMetrics = metrics.computeIfAbsent(name, key -> new MethodMetrics(key, windowSeconds));
+        }
+        return methodMetrics;
+    }
+
+    public ConcurrencyLimiter limiter(String name, int maxConcurrency, boolean adaptive) {
+        return limiters.computeIfAbsent(name, key -> new ConcurrencyLimiter(maxConcurrency, adaptive));
+    }
+
+    public Map<String, Map<String, Object>> snapshot() {
+        long now = ticker.read();
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        metrics.forEach((name, methodMetrics) -> result.put(name, methodMetrics.snapshot(now)));
+        limiters.forEach((name, limiter) -> result.computeIfAbsent(name, key -> new LinkedHashMap<>())
+                .put("limiter", limiter.snapshot()));
+        return result;
+    }
+}
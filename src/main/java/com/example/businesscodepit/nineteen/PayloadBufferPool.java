@@ -0,0 +1,78 @@
+package com.example.businesscodepit.nineteen;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     有界的堆外缓冲池，用于生成 SayService 的测试数据
+ *     1.最多同时借出 MAX_BUFFERS 个缓冲区，借不到时最多等待 ACQUIRE_TIMEOUT_MILLIS，超时抛出异常，
+ *       而不是像原来那样每次调用都在堆上新建 1MB 的字符串，压测时撑爆内存
+ *     2.归还的缓冲区放回空闲队列复用，DirectByteBuffer 的分配和回收都比较昂贵，不应该每次都新建
+ *     3.堆外内存不受 -Xmx 限制，所以总量必须由池子自己控制
+ *     4.借出的缓冲区记录在 leased 集合中，重复归还或者归还不是本池借出的缓冲区直接抛出异常，
+ *       否则同一个缓冲区会在空闲队列中出现两次，被两个调用方同时借走，许可数也会超过 MAX_BUFFERS
+ * @author yaoyong
+ **/
+@Component
+public class PayloadBufferPool {
+    static final int MAX_BUFFERS = 8;
+    static final int BUFFER_CAPACITY = 1024 * 1024 + 64;
+    private static final long ACQUIRE_TIMEOUT_MILLIS = 1000;
+
+    private final Semaphore permits = new Semaphore(MAX_BUFFERS);
+    private final ArrayBlockingQueue<ByteBuffer> idle = new ArrayBlockingQueue<>(MAX_BUFFERS);
+    private final AtomicInteger allocated = new AtomicInteger();
+    private final Set<ByteBuffer> leased = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    public ByteBuffer acquire() {
+        try {
+            if (!permits.tryAcquire(ACQUIRE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("payload buffer pool exhausted, max buffers: " + MAX_BUFFERS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for payload buffer", e);
+        }
+        ByteBuffer buffer = idle.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(BUFFER_CAPACITY);
+            allocated.incrementAndGet();
+        }
+        buffer.clear();
+        leased.add(buffer);
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (!leased.remove(buffer)) {
+            throw new IllegalStateException("payload buffer was not leased from this pool or has already been released");
+        }
+        idle.offer(buffer);
+        permits.release();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("maxBuffers", MAX_BUFFERS);
+        result.put("bufferCapacity", BUFFER_CAPACITY);
+        result.put("allocated", allocated.get());
+        result.put("idle", idle.size());
+        result.put("inUse", MAX_BUFFERS - permits.availablePermits());
+        result.put("offHeapBytes", (long) allocated.get() * BUFFER_CAPACITY);
+        return result;
+    }
+}
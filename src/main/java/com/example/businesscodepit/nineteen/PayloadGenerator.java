@@ -0,0 +1,53 @@
+package com.example.businesscodepit.nineteen;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     生成压测用的大字符串数据
+ *     原来的写法 IntStream.rangeClosed(1, 1000000).mapToObj(__ -> "a").collect(joining(""))
+ *     会经过装箱、一百万次 StringBuilder 追加以及多次扩容拷贝；
+ *     这里把一个预先填好的块批量写入 ByteBuffer
+ * @author yaoyong
+ **/
+public final class PayloadGenerator {
+    public static final char FILLER = 'a';
+    private static final byte[] FILLER_CHUNK = new byte[8192];
+
+    static {
+        Arrays.fill(FILLER_CHUNK, (byte) FILLER);
+    }
+
+    private PayloadGenerator() {
+    }
+
+    /**
+     * 把 length 个填充字符加上 suffix 以 ASCII/UTF-8 写入 buffer，不在堆上创建任何字符串
+     */
+    public static void write(ByteBuffer buffer, int length, String suffix) {
+        int remaining = length;
+        while (remaining > 0) {
+            int chunk = Math.min(remaining, FILLER_CHUNK.length);
+            buffer.put(FILLER_CHUNK, 0, chunk);
+            remaining -= chunk;
+        }
+        buffer.put(suffix.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 计算 buffer 中 [0, position) 这段数据的 CRC32，直接读取堆外内存，不拷贝到堆上，也不改变 buffer 的 position
+     */
+    public static long checksum(ByteBuffer buffer) {
+        ByteBuffer written = buffer.duplicate();
+        written.flip();
+        CRC32 crc = new CRC32();
+        crc.update(written);
+        return crc.getValue();
+    }
+}
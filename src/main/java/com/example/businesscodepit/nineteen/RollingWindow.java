@@ -0,0 +1,99 @@
+package com.example.businesscodepit.nineteen;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     最近 N 秒的滑动窗口统计：调用量、错误率以及耗时百分位数
+ *     窗口被等分为 BUCKET_COUNT 个时间桶，组成一个环，每个桶有自己的计数器和耗时直方图
+ *     1.写入时根据当前时间算出桶的序号，序号对应的槽位里如果还是旧的桶就先清空再复用，不会分配新对象
+ *     2.读取时只合并仍在窗口内的桶，所以窗口是按桶的粒度滑动的；
+ *       当前桶只过去了一部分，刚开始统计时窗口也还没有填满，callsPerSecond 按窗口实际覆盖的时间计算
+ *     清空旧桶和并发写入之间没有加锁，极少数落在桶切换瞬间的调用可能被计入旧桶或被清掉，对统计结果影响可以忽略
+ * @author yaoyong
+ **/
+public class RollingWindow {
+    static final int BUCKET_COUNT = 6;
+
+    private final int windowSeconds;
+    private final long bucketNanos;
+    private final Bucket[] buckets = new Bucket[BUCKET_COUNT];
+    //第一次记录的调用开始的时间，窗口覆盖的时间不会早于它
+    private volatile long startNanos = Long.MIN_VALUE;
+
+    public RollingWindow(int windowSeconds) {
+        this.windowSeconds = windowSeconds;
+        this.bucketNanos = TimeUnit.SECONDS.toNanos(windowSeconds) / BUCKET_COUNT;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    public void record(long nowNanos, long elapsedNanos, boolean failed) {
+        if (startNanos == Long.MIN_VALUE) {
+            startNanos = nowNanos - elapsedNanos;
+        }
+        Bucket bucket = current(nowNanos);
+        bucket.calls.increment();
+        if (failed) {
+            bucket.errors.increment();
+        }
+        bucket.latency.record(elapsedNanos / 1000);
+    }
+
+    private Bucket current(long nowNanos) {
+        long epoch = Math.floorDiv(nowNanos, bucketNanos);
+        Bucket bucket = buckets[(int) Math.floorMod(epoch, (long) BUCKET_COUNT)];
+        if (bucket.epoch != epoch) {
+            synchronized (bucket) {
+                if (bucket.epoch != epoch) {
+                    bucket.calls.reset();
+                    bucket.errors.reset();
+                    bucket.latency.reset();
+                    bucket.epoch = epoch;
+                }
+            }
+        }
+        return bucket;
+    }
+
+    public Map<String, Object> snapshot(long nowNanos) {
+        long currentEpoch = Math.floorDiv(nowNanos, bucketNanos);
+        long calls = 0;
+        long errors = 0;
+        long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        for (Bucket bucket : buckets) {
+            long age = currentEpoch - bucket.epoch;
+            if (age >= 0 && age < BUCKET_COUNT) {
+                calls += bucket.calls.sum();
+                errors += bucket.errors.sum();
+                bucket.latency.copyInto(counts);
+            }
+        }
+        HistogramSnapshot histogram = new HistogramSnapshot(counts);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("windowSeconds", windowSeconds);
+        result.put("calls", calls);
+        long windowStartNanos = (currentEpoch - BUCKET_COUNT + 1) * bucketNanos;
+        long coveredNanos = nowNanos - Math.max(windowStartNanos, startNanos);
+        result.put("callsPerSecond", coveredNanos <= 0 ? 0.0 : calls * 1e9 / coveredNanos);
+        result.put("errorRate", calls == 0 ? 0.0 : (double) errors / calls);
+        result.put("p50Micros", histogram.getValueAtPercentile(50));
+        result.put("p99Micros", histogram.getValueAtPercentile(99));
+        result.put("p999Micros", histogram.getValueAtPercentile(99.9));
+        return result;
+    }
+
+    private static final class Bucket {
+        private volatile long epoch = Long.MIN_VALUE;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+    }
+}
@@ -1,20 +1,68 @@
 package com.example.businesscodepit.nineteen;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 
-import java.util.ArrayList;
-import java.util.List;
+import javax.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.UUID;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
+/**
+ * 描述：
+ * <p>
+ * 创建时间：
+ * 修改时间：2026/10/17
+ *     原来每次调用都在堆上生成一个 100 万字符的字符串，并追加到一个无界的 List 中，
+ *     配合 prototype 作用域每次调用都会创建新的 Bean，压测时堆内存很快就被撑爆
+ *     现在：
+ *     1.数据写入从 PayloadBufferPool 借来的堆外缓冲区，用完立即归还
+ *     2.数据在归还缓冲区之前计算 CRC32 校验和，每个实例只保留最近 MAX_RETAINED 条数据的摘要（UUID + 校验和），而不是完整数据
+ *     3.通过 BeanMemoryAccounting 按类型统计实例数、调用次数和内存使用
+ * @author yaoyong
+ **/
 @Slf4j
 public abstract class SayService {
-    List<String> data = new ArrayList<>();
+    static final int PAYLOAD_LENGTH = 1000000;
+    static final int MAX_RETAINED = 16;
+
+    @Autowired
+    private PayloadBufferPool payloadBufferPool;
+    @Autowired
+    private BeanMemoryAccounting beanMemoryAccounting;
+
+    Deque<String> data = new ArrayDeque<>(MAX_RETAINED);
+    private long retainedBytes;
+
+    @PostConstruct
+    public void registerInstance() {
+        beanMemoryAccounting.instanceCreated(getClass());
+    }
+
     public void say() {
-        data.add(IntStream.rangeClosed(1, 1000000)
-                .mapToObj(__ -> "a")
-                .collect(Collectors.joining("")) + UUID.randomUUID().toString());
-        log.info("I'm {} size:{}", this, data.size());
+        String id = UUID.randomUUID().toString();
+        ByteBuffer buffer = payloadBufferPool.acquire();
+        int size;
+        long checksum;
+        try {
+            PayloadGenerator.write(buffer, PAYLOAD_LENGTH, id);
+            size = buffer.position();
+            checksum = PayloadGenerator.checksum(buffer);
+        } finally {
+            payloadBufferPool.release(buffer);
+        }
+        String digest = id + ":" + Long.toHexString(checksum);
+        retain(digest);
+        beanMemoryAccounting.generated(getClass(), size, retainedBytes);
+        log.info("I'm {} size:{} payload:{} bytes digest:{}", this, data.size(), size, digest);
+    }
+
+    private void retain(String digest) {
+        if (data.size() == MAX_RETAINED) {
+            retainedBytes -= data.removeFirst().length();
+        }
+        data.addLast(digest);
+        retainedBytes += digest.length();
     }
 }
@@ -0,0 +1,63 @@
+package com.example.businesscodepit.nineteen;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.scope.ScopedProxyUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.support.SimpleThreadScope;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     可选的代理目标缓存策略，通过 business.scoped-target.cache 配置：
+ *     none    默认值，保持 prototype，每次方法调用都创建新的目标 Bean
+ *     request 同一个请求内复用同一个目标 Bean，只能在 Web 请求线程中调用
+ *     thread  同一个线程内复用同一个目标 Bean（SimpleThreadScope，不会销毁，适合 Tomcat 这种线程池）
+ *     实现方式是在 Bean 定义注册完成后，把 scopedTarget. 开头且作用域为 prototype 的 Bean 定义改为对应的作用域，
+ *     不需要修改 SayHello、SayBye 上的 @Scope 注解；注意目标 Bean 被复用后，其中的状态也会被共享
+ * @author yaoyong
+ **/
+@Component
+@Slf4j
+public class ScopedTargetCachingPostProcessor implements BeanFactoryPostProcessor, EnvironmentAware {
+    static final String PROPERTY = "business.scoped-target.cache";
+    static final String THREAD_SCOPE = "thread";
+
+    private String strategy = "none";
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        strategy = environment.getProperty(PROPERTY, "none").trim().toLowerCase();
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        String scope;
+        if ("request".equals(strategy)) {
+            scope = WebApplicationContext.SCOPE_REQUEST;
+        } else if (THREAD_SCOPE.equals(strategy)) {
+            scope = THREAD_SCOPE;
+            beanFactory.registerScope(THREAD_SCOPE, new SimpleThreadScope());
+        } else {
+            return;
+        }
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            if (!ScopedProxyUtils.isScopedTarget(beanName)) {
+                continue;
+            }
+            BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+            if (BeanDefinition.SCOPE_PROTOTYPE.equals(definition.getScope())) {
+                definition.setScope(scope);
+                log.info("scoped proxy target {} switched from prototype to {} scope", beanName, scope);
+            }
+        }
+    }
+}
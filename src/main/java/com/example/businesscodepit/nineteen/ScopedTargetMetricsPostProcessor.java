@@ -0,0 +1,140 @@
+package com.example.businesscodepit.nineteen;
+
+import org.springframework.aop.scope.ScopedProxyUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     统计 ScopedProxyMode.TARGET_CLASS 代理背后目标 Bean 的创建次数和耗时
+ *     代理对应的目标 Bean 名称都以 scopedTarget. 开头，SayHello、SayBye 这种 prototype 作用域的代理，
+ *     每调用一次方法就会创建一个新的目标 Bean，在热点接口上会产生大量的对象创建
+ *     postProcessAfterInstantiation 记录开始时间，postProcessAfterInitialization 记录结束时间并计数，
+ *     耗时包括依赖注入、初始化回调以及其它 BeanPostProcessor 的处理；嵌套创建的 Bean 使用线程内的栈区分
+ *     注意不能用 postProcessBeforeInstantiation 计时：它返回 null 后 Spring 会在 Bean 定义上做标记，
+ *     同一个 prototype Bean 之后再创建时就不会再回调了
+ *     初始化抛出异常时 Spring 不会回调 postProcessAfterInitialization，栈里会留下一个过期的开始时间；
+ *     Spring 自己在 finally 中清除 Bean 的"创建中"标记，所以每次压栈、出栈前都把已经不在创建中的栈帧丢掉，
+ *     栈空后移除 ThreadLocal，避免 Tomcat 线程池的线程上一直挂着过期数据
+ * @author yaoyong
+ **/
+@Component
+public class ScopedTargetMetricsPostProcessor implements InstantiationAwareBeanPostProcessor, BeanFactoryAware {
+    private final ThreadLocal<Deque<Start>> starts = new ThreadLocal<>();
+
+    private final ConcurrentHashMap<String, TargetStats> stats = new ConcurrentHashMap<>();
+    private ConfigurableBeanFactory beanFactory;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        if (beanFactory instanceof ConfigurableBeanFactory) {
+            this.beanFactory = (ConfigurableBeanFactory) beanFactory;
+        }
+    }
+
+    @Override
+    public boolean postProcessAfterInstantiation(Object bean, String beanName) throws BeansException {
+        if (ScopedProxyUtils.isScopedTarget(beanName)) {
+            Deque<Start> stack = starts.get();
+            if (stack == null) {
+                stack = new ArrayDeque<>();
+                starts.set(stack);
+            } else {
+                discardAbandoned(stack);
+            }
+            stack.push(new Start(beanName, System.nanoTime()));
+        }
+        return true;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (ScopedProxyUtils.isScopedTarget(beanName)) {
+            Deque<Start> stack = starts.get();
+            if (stack != null) {
+                discardAbandoned(stack);
+                Start start = stack.peek();
+                if (start != null && start.beanName.equals(beanName)) {
+                    stack.pop();
+                    stats.computeIfAbsent(ScopedProxyUtils.getOriginalBeanName(beanName), key -> new TargetStats())
+                            .record(System.nanoTime() - start.nanos);
+                }
+                if (stack.isEmpty()) {
+                    starts.remove();
+                }
+            }
+        }
+        return bean;
+    }
+
+    /**
+     * 丢掉栈顶那些已经不在创建中的栈帧，它们对应的 Bean 在初始化时抛出了异常
+     */
+    private void discardAbandoned(Deque<Start> stack) {
+        if (beanFactory == null) {
+            return;
+        }
+        while (!stack.isEmpty() && !beanFactory.isCurrentlyInCreation(stack.peek().beanName)) {
+            stack.pop();
+        }
+    }
+
+    int pendingStarts() {
+        Deque<Start> stack = starts.get();
+        return stack == null ? 0 : stack.size();
+    }
+
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        stats.forEach((name, targetStats) -> result.put(name, targetStats.snapshot()));
+        return result;
+    }
+
+    private static final class Start {
+        private final String beanName;
+        private final long nanos;
+
+        private Start(String beanName, long nanos) {
+            this.beanName = beanName;
+            this.nanos = nanos;
+        }
+    }
+
+    private static final class TargetStats {
+        private final LongAdder created = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private void record(long elapsedNanos) {
+            created.increment();
+            totalNanos.add(elapsedNanos);
+            latency.record(elapsedNanos / 1000);
+        }
+
+        private Map<String, Object> snapshot() {
+            HistogramSnapshot histogram = latency.snapshot();
+            long count = created.sum();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("created", count);
+            result.put("meanMicros", count == 0 ? 0 : totalNanos.sum() / count / 1000);
+            result.put("p99Micros", histogram.getValueAtPercentile(99));
+            result.put("maxMicros", histogram.getMax());
+            return result;
+        }
+    }
+}
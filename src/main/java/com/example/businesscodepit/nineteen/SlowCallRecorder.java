@@ -0,0 +1,81 @@
+package com.example.businesscodepit.nineteen;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     记录超过 @Metrics#slowThresholdMillis 的慢调用，只保留最近 CAPACITY 条
+ *     只有超过阈值的调用才会在业务线程上把参数渲染为按 maxLogPayloadBytes 截断的 JSON 文本，
+ *     缓冲区里保存的是文本而不是参数对象本身，不会让大对象、servlet 请求等随着慢调用记录一直留在内存里，
+ *     这样不用为了找出少数慢请求而把每个请求都完整地记录日志
+ * @author yaoyong
+ **/
+@Component
+public class SlowCallRecorder {
+    private static final int CAPACITY = 128;
+
+    @Autowired
+    private LogCapturePipeline logCapturePipeline;
+
+    private final AtomicReferenceArray<SlowCall> calls = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLong sequence = new AtomicLong();
+
+    public void record(CompiledMetricsPlan plan, String url, Object[] args, long elapsedNanos, boolean failed) {
+        String renderedArgs = logCapturePipeline.snapshot(args, true, plan.getMaxLogPayloadBytes());
+        SlowCall slowCall = new SlowCall(plan.getName(), url, renderedArgs, elapsedNanos, failed, System.currentTimeMillis());
+        calls.set((int) (sequence.getAndIncrement() % CAPACITY), slowCall);
+    }
+
+    /**
+     * 按时间倒序返回最近的慢调用
+     */
+    public List<Map<String, Object>> recent() {
+        long last = sequence.get();
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (long i = last - 1; i >= 0 && i >= last - CAPACITY; i--) {
+            SlowCall slowCall = calls.get((int) (i % CAPACITY));
+            if (slowCall == null) {
+                continue;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", slowCall.name);
+            item.put("url", slowCall.url);
+            item.put("timestamp", slowCall.timestamp);
+            item.put("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(slowCall.elapsedNanos));
+            item.put("failed", slowCall.failed);
+            item.put("args", slowCall.args);
+            result.add(item);
+        }
+        return result;
+    }
+
+    private static final class SlowCall {
+        private final String name;
+        private final String url;
+        private final String args;
+        private final long elapsedNanos;
+        private final boolean failed;
+        private final long timestamp;
+
+        private SlowCall(String name, String url, String args, long elapsedNanos, boolean failed, long timestamp) {
+            this.name = name;
+            this.url = url;
+            this.args = args;
+            this.elapsedNanos = elapsedNanos;
+            this.failed = failed;
+            this.timestamp = timestamp;
+        }
+    }
+}
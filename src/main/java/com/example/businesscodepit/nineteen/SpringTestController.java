@@ -8,7 +8,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -34,6 +36,12 @@ public class SpringTestController {
     List<SayService> sayServiceList;
     @Autowired
     private UserService userService;
+    @Autowired
+    private BeanMemoryAccounting beanMemoryAccounting;
+    @Autowired
+    private PayloadBufferPool payloadBufferPool;
+    @Autowired
+    private ScopedTargetMetricsPostProcessor scopedTargetMetrics;
 
     /**
      * SayService是有状态的 将List<SayService>进行注入,会发现每次调用其sayBye都是一样的
@@ -49,6 +57,26 @@ public class SpringTestController {
         sayServiceList.forEach(SayService::say);
     }
 
+    /**
+     * SayService 各实现按类型统计的实例数、调用次数、生成字节数，以及堆外缓冲池的使用情况
+     */
+    @GetMapping("memory")
+    public Map<String, Object> memory() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("beans", beanMemoryAccounting.snapshot());
+        result.put("bufferPool", payloadBufferPool.stats());
+        return result;
+    }
+
+    /**
+     * ScopedProxyMode.TARGET_CLASS 代理目标 Bean 的创建次数和耗时，
+     * 可以配合 business.scoped-target.cache 对比 prototype 与按请求/按线程复用的差别
+     */
+    @GetMapping("scopedTargets")
+    public Map<String, Map<String, Object>> scopedTargets() {
+        return scopedTargetMetrics.snapshot();
+    }
+
     /**
      * 自定义切面导致事务失效  无法回滚
      *
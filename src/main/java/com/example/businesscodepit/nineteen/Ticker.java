@@ -0,0 +1,24 @@
+package com.example.businesscodepit.nineteen;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     计时用的时钟源，返回纳秒级的单调时间，只能用来计算时间差，不能当作当前时间使用
+ *     1.Instant.now() 每次调用都会创建对象，JDK8 下只有毫秒精度，而且会随着系统时间被调整而跳变
+ *     2.System.nanoTime() 是单调递增的，不分配对象
+ *     测试时可以注册一个自定义的 Ticker Bean，替换掉默认的系统时钟
+ * @author yaoyong
+ **/
+@FunctionalInterface
+public interface Ticker {
+    /**
+     * @return 任意起点开始的纳秒数
+     */
+    long read();
+
+    static Ticker systemTicker() {
+        return System::nanoTime;
+    }
+}
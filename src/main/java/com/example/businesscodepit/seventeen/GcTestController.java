@@ -2,16 +2,29 @@ package com.example.businesscodepit.seventeen;
 
 import com.example.businesscodepit.seventeen.bean.User;
 import com.example.businesscodepit.seventeen.bean.UserProfile;
+import com.example.businesscodepit.seventeen.cache.OffHeapUserProfileStore;
+import com.example.businesscodepit.seventeen.cache.SegmentedLruCache;
+import com.example.businesscodepit.seventeen.cache.UserProfileView;
+import com.example.businesscodepit.seventeen.index.UserPrefixIndex;
+import com.example.businesscodepit.seventeen.memory.HeapPressureMonitor;
+import com.example.businesscodepit.stats.StatsSampler;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.LongStream;
 
 /**
@@ -49,7 +62,39 @@ import java.util.stream.LongStream;
 @RestController
 @RequestMapping("/oom")
 public class GcTestController {
+    @Autowired
+    private HeapPressureMonitor heapPressureMonitor;
+    @Autowired
+    private StatsSampler statsSampler;
+
     private Map<User, UserProfile> cache = new WeakHashMap<>();
+    /**
+     * 按字节数限制容量的缓存，不管加载多少用户，最多占用 PROFILE_CACHE_MAX_BYTES 的堆内存
+     */
+    private static final long PROFILE_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+    private final SegmentedLruCache<User, UserProfile> profileCache = SegmentedLruCache.<User, UserProfile>builder()
+            .maximumWeight(PROFILE_CACHE_MAX_BYTES)
+            .weigher(new UserProfileWeigher())
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+    /**
+     * 用户资料放在堆外，堆上只有索引的 long 数组，老年代 GC 不再需要扫描几百万个 User/UserProfile
+     * 堆外的段在第一次写入时才分配，索引从很小的容量开始按需扩容，没有调用 testOffHeapStore 时几乎不占内存
+     */
+    private final OffHeapUserProfileStore offHeapProfiles = new OffHeapUserProfileStore(64 * 1024 * 1024, 1024);
+
+    /**
+     * 老年代超过水位线时由 HeapPressureMonitor 按比例缩小用户资料缓存；各个缓存的大小由 StatsSampler 定时采样，
+     * 用户资料缓存的过期条目也由 StatsSampler 的采样线程每分钟清理一次
+     */
+    @PostConstruct
+    public void init() {
+        heapPressureMonitor.register("profileCache", profileCache::shed);
+        statsSampler.register("oom.profileCache.size", profileCache::estimatedSize);
+        statsSampler.register("oom.profileCache.weightedSize", profileCache::weightedSize);
+        statsSampler.registerHousekeeping("oom.profileCache.cleanUp", TimeUnit.MINUTES.toMillis(1), profileCache::cleanUp);
+        statsSampler.register("oom.offHeapProfiles.size", offHeapProfiles::size);
+    }
     /**
      * 场景:
      *     系统缓存所有用户信息到内存中,现新加一个功能 实现用户名搜索时自动补全
@@ -61,11 +106,39 @@ public class GcTestController {
      *           a    new User(user的信息)
      *           ab   new User(user的信息)
      *           abc  new User(user的信息)
+     *      正确做法见 testPrefixIndex
      */
     public void test1(){
 
     }
 
+    /**
+     * 用 UserPrefixIndex 实现自动补全：所有 User 只有一份，索引中只保存按用户名排序的 int 用户 id，
+     * 前缀查询是两次二分查找，取热度最高的 k 个用户通过线段树完成
+     */
+    @GetMapping("/testPrefixIndex")
+    public Map<String, Object> testPrefixIndex(@RequestParam(name = "count", defaultValue = "2000000") int count,
+                                               @RequestParam(name = "prefix", defaultValue = "zhuye12") String prefix,
+                                               @RequestParam(name = "k", defaultValue = "10") int k) {
+        List<User> users = new ArrayList<>(count);
+        int[] popularity = new int[count];
+        for (int i = 0; i < count; i++) {
+            users.add(new User("zhuye" + (i + 1)));
+            popularity[i] = ThreadLocalRandom.current().nextInt(1000000);
+        }
+        long begin = System.currentTimeMillis();
+        UserPrefixIndex index = UserPrefixIndex.build(users, popularity);
+        long buildMillis = System.currentTimeMillis() - begin;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("users", index.size());
+        result.put("buildMillis", buildMillis);
+        result.put("indexBytes", index.estimatedIndexBytes());
+        result.put("matches", index.count(prefix));
+        result.put("topK", index.topK(prefix, k).stream().map(User::getName).collect(Collectors.toList()));
+        log.info("prefix index:{}", result);
+        return result;
+    }
+
     /**
      *
      * 垃圾回收器不会回收有强引用的对象；
@@ -83,15 +156,61 @@ public class GcTestController {
     @GetMapping("/testWeakHashMap")
     public void testWeakHashMap(){
         String userName = "zhuye";
-        //间隔1秒定时输出缓存中的条目数
-        Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(
-                () -> log.info("cache size:{}", cache.size()), 1, 1, TimeUnit.SECONDS);
+        //缓存中的条目数交给共享的 StatsSampler 定时采样，通过 /stats?prefix=oom.weakHashMap 查看，不再每次调用都新建一个不会关闭的定时线程池
+        statsSampler.register("oom.weakHashMap.size", cache::size);
         LongStream.rangeClosed(1, 2000000).forEach(i -> {
             User user = new User(userName + i);
             cache.put(user, new UserProfile(user, "location" + i));
         });
     }
 
+    /**
+     * 同样的场景换成 SegmentedLruCache：UserProfile 仍然强引用 User，但缓存按估算的字节数淘汰，
+     * 加载 200 万用户时缓存大小稳定在 PROFILE_CACHE_MAX_BYTES 以内，不会 OOM
+     */
+    @GetMapping("/testSegmentedCache")
+    public Map<String, Object> testSegmentedCache(@RequestParam(name = "count", defaultValue = "2000000") int count) {
+        String userName = "zhuye";
+        LongStream.rangeClosed(1, count).forEach(i -> {
+            User user = new User(userName + i);
+            profileCache.put(user, new UserProfile(user, "location" + i));
+        });
+        Map<String, Object> stats = profileCache.stats();
+        log.info("profile cache stats:{}", stats);
+        return stats;
+    }
+
+    /**
+     * 同样的 200 万用户写入 OffHeapUserProfileStore，读取时复用同一个 UserProfileView
+     */
+    @GetMapping("/testOffHeapStore")
+    public Map<String, Object> testOffHeapStore(@RequestParam(name = "count", defaultValue = "2000000") int count) {
+        String userName = "zhuye";
+        LongStream.rangeClosed(1, count).forEach(i -> offHeapProfiles.put(userName + i, "location" + i));
+        UserProfileView view = new UserProfileView();
+        long found = LongStream.rangeClosed(1, count).filter(i -> offHeapProfiles.get(userName + i, view)).count();
+        Map<String, Object> stats = offHeapProfiles.stats();
+        stats.put("found", found);
+        if (offHeapProfiles.get(userName + count, view)) {
+            stats.put("last", view.toUserProfile());
+        }
+        log.info("off-heap store stats:{}", stats);
+        return stats;
+    }
+
+    @GetMapping("/cacheStats")
+    public Map<String, Object> cacheStats() {
+        return profileCache.stats();
+    }
+
+    /**
+     * 老年代占用、GC 停顿、分配速率以及缓存丢弃的统计
+     */
+    @GetMapping("/heapPressure")
+    public Map<String, Object> heapPressure() {
+        return heapPressureMonitor.stats();
+    }
+
     /**
      * tomcat配置导致的oom
      */
@@ -0,0 +1,31 @@
+package com.example.businesscodepit.seventeen;
+
+import com.example.businesscodepit.seventeen.bean.User;
+import com.example.businesscodepit.seventeen.bean.UserProfile;
+import com.example.businesscodepit.seventeen.cache.ObjectSizes;
+import com.example.businesscodepit.seventeen.cache.Weigher;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     估算 User -> UserProfile 缓存条目的堆占用：两个对象本身加上 name、location 两个字符串
+ *     UserProfile 引用的 User 就是 key 本身时不重复计算
+ * @author yaoyong
+ **/
+public class UserProfileWeigher implements Weigher<User, UserProfile> {
+    private static final long USER_SHALLOW = ObjectSizes.shallow(1, 0);
+    private static final long PROFILE_SHALLOW = ObjectSizes.shallow(2, 0);
+
+    @Override
+    public long weigh(User user, UserProfile profile) {
+        long weight = USER_SHALLOW + ObjectSizes.string(user.getName())
+                + PROFILE_SHALLOW + ObjectSizes.string(profile.getLocation());
+        User profileUser = profile.getUser();
+        if (profileUser != null && profileUser != user) {
+            weight += USER_SHALLOW + ObjectSizes.string(profileUser.getName());
+        }
+        return weight;
+    }
+}
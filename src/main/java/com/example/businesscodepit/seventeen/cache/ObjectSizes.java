@@ -0,0 +1,40 @@
+package com.example.businesscodepit.seventeen.cache;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     按 64 位 JVM 开启压缩指针（堆小于 32GB 时的默认值）估算对象大小，用于实现 Weigher
+ *     对象头 12 字节，引用 4 字节，数组头 16 字节，对象按 8 字节对齐
+ *     JDK8 的 String 是 对象头 + char[] 引用 + hash 共 24 字节，加上 char[] 每个字符 2 字节
+ *     只是估算，用来让缓存的容量和实际堆占用大致成正比，精确值以 jmap -histo 为准
+ * @author yaoyong
+ **/
+public final class ObjectSizes {
+    public static final int OBJECT_HEADER = 12;
+    public static final int REFERENCE = 4;
+    public static final int ARRAY_HEADER = 16;
+    private static final int STRING_SHALLOW = 24;
+
+    private ObjectSizes() {
+    }
+
+    public static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * 只有 referenceFields 个引用字段和 primitiveBytes 字节基本类型字段的对象本身的大小
+     */
+    public static long shallow(int referenceFields, int primitiveBytes) {
+        return align(OBJECT_HEADER + (long) referenceFields * REFERENCE + primitiveBytes);
+    }
+
+    public static long string(String value) {
+        if (value == null) {
+            return 0;
+        }
+        return STRING_SHALLOW + align(ARRAY_HEADER + 2L * value.length());
+    }
+}
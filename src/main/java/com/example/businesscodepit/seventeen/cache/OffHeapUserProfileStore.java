@@ -0,0 +1,344 @@
+package com.example.businesscodepit.seventeen.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     把 用户名 -> 位置 保存在堆外内存中的用户资料存储，堆上每个用户只剩索引里的一个 long
+ *     堆上的 User/UserProfile 每条要两个对象头、两个 String 和一个 Map.Entry，几百万条全在老年代，
+ *     每次 Full GC 都要逐个扫描；放到堆外之后 GC 只看到几个 DirectByteBuffer 和一个 long 数组
+ *     1.数据按追加写的方式存放在 segmentBytes 大小的 DirectByteBuffer 段中，记录格式为
+ *       [int 用户名 hash][short 用户名长度][short 位置长度][用户名 UTF-8][位置 UTF-8]，记录不跨段
+ *     2.索引是线性探测的开放寻址 long 数组，槽位高 24 位是 hash 的片段，低 40 位是记录地址 + 1（0 表示空槽），
+ *       比较 hash 片段不用访问堆外内存就能排除大部分冲突；删除使用后移法，不需要墓碑
+ *     3.更新和删除只修改索引，旧记录成为垃圾，通过 deadBytes 统计，超过一半时由写入线程触发 compact 整理；
+ *       compact 先把有效记录复制到新段再丢弃旧段，整理期间堆外内存占用最多翻倍，
+ *       旧段是 DirectByteBuffer，要等 GC 回收它们之后堆外内存才真正释放
+ *     4.读取通过调用方复用的 UserProfileView，只在访问字段时解码
+ *     读写锁保护索引和段列表：读之间互不阻塞，写入互斥
+ * @author yaoyong
+ **/
+public class OffHeapUserProfileStore {
+    static final int HASH_OFFSET = 0;
+    static final int NAME_LENGTH_OFFSET = 4;
+    static final int LOCATION_LENGTH_OFFSET = 6;
+    static final int HEADER_BYTES = 8;
+    private static final int MAX_FIELD_BYTES = 0xFFFF;
+    private static final int FRAGMENT_SHIFT = 40;
+    private static final long ADDRESS_MASK = (1L << FRAGMENT_SHIFT) - 1;
+    private static final double MAX_LOAD = 0.7;
+
+    private final int segmentBytes;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private List<ByteBuffer> segments = new ArrayList<>();
+    private long[] slots;
+    private int size;
+    private long usedBytes;
+    private long deadBytes;
+    private long compactions;
+
+    public OffHeapUserProfileStore(int segmentBytes, int expectedSize) {
+        if (segmentBytes < HEADER_BYTES + 2 * MAX_FIELD_BYTES) {
+            throw new IllegalArgumentException("segmentBytes too small: " + segmentBytes);
+        }
+        this.segmentBytes = segmentBytes;
+        int capacity = 16;
+        while (capacity * MAX_LOAD < expectedSize) {
+            capacity <<= 1;
+        }
+        this.slots = new long[capacity];
+    }
+
+    public void put(String name, String location) {
+        byte[] nameBytes = encode(name);
+        byte[] locationBytes = encode(location);
+        int hash = hash(nameBytes);
+        lock.writeLock().lock();
+        try {
+            long address = append(hash, nameBytes, locationBytes);
+            int slot = find(hash, nameBytes);
+            if (slot >= 0) {
+                deadBytes += recordBytes(slots[slot] & ADDRESS_MASK);
+                slots[slot] = slotValue(hash, address);
+            } else {
+                slots[-slot - 1] = slotValue(hash, address);
+                if (++size > slots.length * MAX_LOAD) {
+                    resize(slots.length << 1);
+                }
+            }
+            if (deadBytes > usedBytes / 2 && deadBytes > segmentBytes) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 找到时把记录装入 view 并返回 true，view 由调用方创建并复用
+     */
+    public boolean get(String name, UserProfileView view) {
+        byte[] nameBytes = encode(name);
+        int hash = hash(nameBytes);
+        lock.readLock().lock();
+        try {
+            int slot = find(hash, nameBytes);
+            if (slot < 0) {
+                return false;
+            }
+            long address = (slots[slot] & ADDRESS_MASK) - 1;
+            view.wrap(segments.get(segmentOf(address)), offsetOf(address));
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean remove(String name) {
+        byte[] nameBytes = encode(name);
+        int hash = hash(nameBytes);
+        lock.writeLock().lock();
+        try {
+            int slot = find(hash, nameBytes);
+            if (slot < 0) {
+                return false;
+            }
+            deadBytes += recordBytes(slots[slot] & ADDRESS_MASK);
+            deleteSlot(slot);
+            size--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 把仍然有效的记录复制到新的段中，释放被更新和删除的记录占用的空间
+     * 新段在复制过程中逐个分配，旧段要等全部复制完才丢弃，所以整理期间堆外内存占用最多是平时的两倍
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            List<ByteBuffer> oldSegments = segments;
+            segments = new ArrayList<>();
+            usedBytes = 0;
+            for (int i = 0; i < slots.length; i++) {
+                long value = slots[i];
+                if (value == 0) {
+                    continue;
+                }
+                long address = (value & ADDRESS_MASK) - 1;
+                ByteBuffer source = oldSegments.get(segmentOf(address));
+                int offset = offsetOf(address);
+                int length = recordBytes(source, offset);
+                long newAddress = reserve(length);
+                copy(source, offset, segments.get(segmentOf(newAddress)), offsetOf(newAddress), length);
+                slots[i] = (value & ~ADDRESS_MASK) | (newAddress + 1);
+            }
+            deadBytes = 0;
+            compactions++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("size", size);
+            result.put("segments", segments.size());
+            result.put("offHeapBytes", (long) segments.size() * segmentBytes);
+            result.put("usedBytes", usedBytes);
+            result.put("deadBytes", deadBytes);
+            result.put("compactions", compactions);
+            result.put("indexCapacity", slots.length);
+            result.put("indexHeapBytes", 8L * slots.length);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 存在时返回槽位下标，不存在时返回 -(可插入的空槽下标 + 1)
+     */
+    private int find(int hash, byte[] nameBytes) {
+        int mask = slots.length - 1;
+        long fragment = fragmentOf(hash);
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            long value = slots[i];
+            if (value == 0) {
+                return -i - 1;
+            }
+            if ((value >>> FRAGMENT_SHIFT) == fragment && nameEquals((value & ADDRESS_MASK) - 1, nameBytes)) {
+                return i;
+            }
+        }
+    }
+
+    private boolean nameEquals(long address, byte[] nameBytes) {
+        ByteBuffer buffer = segments.get(segmentOf(address));
+        int offset = offsetOf(address);
+        if ((buffer.getShort(offset + NAME_LENGTH_OFFSET) & 0xFFFF) != nameBytes.length) {
+            return false;
+        }
+        int position = offset + HEADER_BYTES;
+        for (int i = 0; i < nameBytes.length; i++) {
+            if (buffer.get(position + i) != nameBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 线性探测的后移删除：把后面本应更靠前的条目依次挪进空出来的槽位
+     */
+    private void deleteSlot(int slot) {
+        int mask = slots.length - 1;
+        int hole = slot;
+        for (int i = (hole + 1) & mask; slots[i] != 0; i = (i + 1) & mask) {
+            int home = spread(storedHash(slots[i])) & mask;
+            boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                slots[hole] = slots[i];
+                hole = i;
+            }
+        }
+        slots[hole] = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] old = slots;
+        slots = new long[capacity];
+        int mask = capacity - 1;
+        for (long value : old) {
+            if (value == 0) {
+                continue;
+            }
+            int i = spread(storedHash(value)) & mask;
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = value;
+        }
+    }
+
+    private long append(int hash, byte[] nameBytes, byte[] locationBytes) {
+        int length = HEADER_BYTES + nameBytes.length + locationBytes.length;
+        long address = reserve(length);
+        ByteBuffer buffer = segments.get(segmentOf(address));
+        int offset = offsetOf(address);
+        buffer.putInt(offset + HASH_OFFSET, hash);
+        buffer.putShort(offset + NAME_LENGTH_OFFSET, (short) nameBytes.length);
+        buffer.putShort(offset + LOCATION_LENGTH_OFFSET, (short) locationBytes.length);
+        ByteBuffer target = buffer.duplicate();
+        target.position(offset + HEADER_BYTES);
+        target.put(nameBytes).put(locationBytes);
+        return address;
+    }
+
+    /**
+     * 通过 duplicate 出来的视图批量复制，不改变共享段的 position/limit，读线程不受影响
+     */
+    private static void copy(ByteBuffer source, int sourceOffset, ByteBuffer target, int targetOffset, int length) {
+        ByteBuffer from = source.duplicate();
+        from.limit(sourceOffset + length);
+        from.position(sourceOffset);
+        ByteBuffer to = target.duplicate();
+        to.position(targetOffset);
+        to.put(from);
+    }
+
+    /**
+     * 在最后一段分配 length 字节，放不下时新开一段，段尾剩余的空间直接计入 usedBytes 不再使用
+     */
+    private long reserve(int length) {
+        int segment = segments.size() - 1;
+        long used = usedBytes - (long) segment * segmentBytes;
+        if (segment < 0 || used + length > segmentBytes) {
+            if (segment >= 0) {
+                usedBytes = (long) (segment + 1) * segmentBytes;
+            }
+            segments.add(ByteBuffer.allocateDirect(segmentBytes));
+            segment = segments.size() - 1;
+            if ((long) segments.size() * segmentBytes > ADDRESS_MASK) {
+                throw new IllegalStateException("off-heap store exceeds addressable size");
+            }
+        }
+        long address = usedBytes;
+        usedBytes += length;
+        return address;
+    }
+
+    private int storedHash(long value) {
+        long address = (value & ADDRESS_MASK) - 1;
+        return segments.get(segmentOf(address)).getInt(offsetOf(address) + HASH_OFFSET);
+    }
+
+    private int recordBytes(long storedAddress) {
+        long address = storedAddress - 1;
+        return recordBytes(segments.get(segmentOf(address)), offsetOf(address));
+    }
+
+    private static int recordBytes(ByteBuffer buffer, int offset) {
+        return HEADER_BYTES + (buffer.getShort(offset + NAME_LENGTH_OFFSET) & 0xFFFF)
+                + (buffer.getShort(offset + LOCATION_LENGTH_OFFSET) & 0xFFFF);
+    }
+
+    private int segmentOf(long address) {
+        return (int) (address / segmentBytes);
+    }
+
+    private int offsetOf(long address) {
+        return (int) (address % segmentBytes);
+    }
+
+    private static long slotValue(int hash, long address) {
+        return (fragmentOf(hash) << FRAGMENT_SHIFT) | (address + 1);
+    }
+
+    private static long fragmentOf(int hash) {
+        return (hash >>> 8) & 0xFFFFFFL;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int hash(byte[] bytes) {
+        int hash = 0x811C9DC5;
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    private static byte[] encode(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_FIELD_BYTES) {
+            throw new IllegalArgumentException("field longer than " + MAX_FIELD_BYTES + " bytes");
+        }
+        return bytes;
+    }
+}
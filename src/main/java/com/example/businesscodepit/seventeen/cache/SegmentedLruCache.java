@@ -0,0 +1,451 @@
+package com.example.businesscodepit.seventeen.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     按字节数限制容量的并发缓存，代替 GcTestController 中不会被回收的 WeakHashMap
+ *     1.按 key 的 hash 分成若干段，每段有自己的锁、HashMap 和容量（总容量 / 段数），不同段之间互不影响
+ *     2.每段内部是分段 LRU（SLRU）：新条目进入试用区（probation），再次被访问才晋升到保护区（protected），
+ *       保护区最多占段容量的 PROTECTED_RATIO，超出时把保护区最久未访问的条目降回试用区；
+ *       淘汰总是先从试用区尾部开始，所以一次性扫描大量只访问一次的 key 不会把反复访问的热点条目冲掉
+ *     3.每个条目的权重 = Weigher 估算的 key、value 大小 + 缓存自身节点的开销 ENTRY_OVERHEAD，
+ *       所以 maximumWeight 就是这个缓存最多占用的堆内存，与放进来多少个用户无关
+ *     4.支持写入后过期和访问后过期，过期的条目在被访问时、写入触发淘汰时以及调用 cleanUp 时删除；
+ *       缓存自己没有后台线程，配置了过期时间的使用方必须定期调用 cleanUp，否则空闲的缓存中过期条目会一直占着内存，
+ *       estimatedSize、weightedSize 也会把它们算进去
+ *     5.单个条目超过段容量时直接拒绝，不会为了放下它清空整个段
+ *     时间通过构造时传入的 nanoClock 读取，测试时可以替换
+ * @author yaoyong
+ **/
+public class SegmentedLruCache<K, V> {
+    static final double PROTECTED_RATIO = 0.8;
+    /**
+     * 缓存节点 Node（5 个引用、3 个 long、1 个 boolean）加上 HashMap.Node 和哈希表槽位的大致开销
+     */
+    static final long ENTRY_OVERHEAD = ObjectSizes.shallow(5, 25) + ObjectSizes.shallow(3, 4) + 8;
+
+    private final long maximumWeight;
+    private final Weigher<? super K, ? super V> weigher;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final LongSupplier nanoClock;
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder evictedWeight = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private SegmentedLruCache(Builder<K, V> builder) {
+        this.maximumWeight = builder.maximumWeight;
+        this.weigher = builder.weigher;
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.expireAfterAccessNanos = builder.expireAfterAccessNanos;
+        this.nanoClock = builder.nanoClock;
+        int segmentCount = 1;
+        while (segmentCount < builder.concurrencyLevel) {
+            segmentCount <<= 1;
+        }
+        this.segments = newSegments(segmentCount);
+        this.segmentMask = segmentCount - 1;
+        long segmentWeight = Math.max(1, maximumWeight / segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(segmentWeight);
+        }
+    }
+
+    /**
+     * 泛型数组只能先创建原始类型再转换，数组只在本类内部使用，不会被外部以其它类型读写
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Segment<K, V>[] newSegments(int count) {
+        return new Segment[count];
+    }
+
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>();
+    }
+
+    public V getIfPresent(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = nanoClock.getAsLong();
+        synchronized (segment) {
+            Node<K, V> node = segment.map.get(key);
+            if (node != null && isExpired(node, now)) {
+                segment.remove(node);
+                expirations.increment();
+                node = null;
+            }
+            if (node == null) {
+                misses.increment();
+                return null;
+            }
+            node.accessNanos = now;
+            segment.onAccess(node);
+            hits.increment();
+            return node.value;
+        }
+    }
+
+    /**
+     * 缓存中没有时调用 loader 加载并放入缓存；加载在锁外进行，并发加载同一个 key 时以后放入的为准
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = getIfPresent(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        long weight = weigher.weigh(key, value) + ENTRY_OVERHEAD;
+        long now = nanoClock.getAsLong();
+        synchronized (segment) {
+            Node<K, V> node = segment.map.get(key);
+            if (weight > segment.maxWeight) {
+                rejected.increment();
+                if (node != null) {
+                    segment.remove(node);
+                }
+                return;
+            }
+            if (node == null) {
+                node = new Node<>(key, value, weight, now);
+                segment.map.put(key, node);
+                segment.addToProbation(node);
+            } else {
+                segment.reweigh(node, weight);
+                node.value = value;
+                node.writeNanos = now;
+                node.accessNanos = now;
+                segment.onAccess(node);
+            }
+            evict(segment, now);
+        }
+    }
+
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            Node<K, V> node = segment.map.get(key);
+            if (node != null) {
+                segment.remove(node);
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * 每段按 fraction 比例淘汰条目，先从试用区尾部开始，不够再淘汰保护区尾部，返回淘汰的总权重
+     * 用于堆内存紧张时主动缩小缓存，见 HeapPressureMonitor
+     */
+    public long shed(double fraction) {
+        long shed = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                long target = (long) (segment.weight * Math.min(1.0, Math.max(0.0, fraction)));
+                long removed = 0;
+                while (removed < target && segment.weight > 0) {
+                    Node<K, V> victim = segment.eldest();
+                    segment.remove(victim);
+                    removed += victim.weight;
+                    evictions.increment();
+                }
+                evictedWeight.add(removed);
+                shed += removed;
+            }
+        }
+        return shed;
+    }
+
+    /**
+     * 扫描所有段删除已经过期的条目，没有访问和写入时过期条目不会自己消失，需要由使用方定期调用
+     */
+    public void cleanUp() {
+        if (expireAfterWriteNanos <= 0 && expireAfterAccessNanos <= 0) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                List<Node<K, V>> expired = new ArrayList<>();
+                for (Node<K, V> node : segment.map.values()) {
+                    if (isExpired(node, now)) {
+                        expired.add(node);
+                    }
+                }
+                for (Node<K, V> node : expired) {
+                    segment.remove(node);
+                }
+                expirations.add(expired.size());
+            }
+        }
+    }
+
+    public long estimatedSize() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    public long weightedSize() {
+        long weight = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                weight += segment.weight;
+            }
+        }
+        return weight;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", estimatedSize());
+        result.put("weightedSize", weightedSize());
+        result.put("maximumWeight", maximumWeight);
+        result.put("segments", segments.length);
+        result.put("hits", hitCount);
+        result.put("misses", missCount);
+        result.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+        result.put("evictions", evictions.sum());
+        result.put("evictedWeight", evictedWeight.sum());
+        result.put("expirations", expirations.sum());
+        result.put("rejected", rejected.sum());
+        return result;
+    }
+
+    private void evict(Segment<K, V> segment, long now) {
+        //先清掉两个区尾部已经过期的条目，再按容量从试用区尾部开始淘汰
+        if (expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0) {
+            expireTail(segment, segment.probation, now);
+            expireTail(segment, segment.protectedHead, now);
+        }
+        while (segment.weight > segment.maxWeight) {
+            Node<K, V> victim = segment.eldest();
+            segment.remove(victim);
+            evictions.increment();
+            evictedWeight.add(victim.weight);
+        }
+    }
+
+    private void expireTail(Segment<K, V> segment, Node<K, V> head, long now) {
+        Node<K, V> tail = head.prev;
+        while (tail != head && isExpired(tail, now)) {
+            Node<K, V> previous = tail.prev;
+            segment.remove(tail);
+            expirations.increment();
+            tail = previous;
+        }
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return (expireAfterWriteNanos > 0 && now - node.writeNanos >= expireAfterWriteNanos)
+                || (expireAfterAccessNanos > 0 && now - node.accessNanos >= expireAfterAccessNanos);
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[hash & segmentMask];
+    }
+
+    private static final class Segment<K, V> {
+        private final long maxWeight;
+        private final long protectedMaxWeight;
+        private final HashMap<K, Node<K, V>> map = new HashMap<>();
+        //两个区都是带哨兵的双向循环链表，head.next 是最近访问的，head.prev 是最久未访问的
+        private final Node<K, V> probation = Node.sentinel();
+        private final Node<K, V> protectedHead = Node.sentinel();
+        private long weight;
+        private long protectedWeight;
+
+        private Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+            this.protectedMaxWeight = (long) (maxWeight * PROTECTED_RATIO);
+        }
+
+        private void addToProbation(Node<K, V> node) {
+            node.inProtected = false;
+            node.linkAfter(probation);
+            weight += node.weight;
+        }
+
+        private void onAccess(Node<K, V> node) {
+            node.unlink();
+            if (!node.inProtected) {
+                node.inProtected = true;
+                protectedWeight += node.weight;
+            }
+            node.linkAfter(protectedHead);
+            while (protectedWeight > protectedMaxWeight && protectedHead.prev != node) {
+                Node<K, V> demoted = protectedHead.prev;
+                demoted.unlink();
+                demoted.inProtected = false;
+                protectedWeight -= demoted.weight;
+                demoted.linkAfter(probation);
+            }
+        }
+
+        /**
+         * 下一个被淘汰的条目：试用区最久未访问的，试用区为空时取保护区最久未访问的
+         */
+        private Node<K, V> eldest() {
+            return probation.prev != probation ? probation.prev : protectedHead.prev;
+        }
+
+        private void reweigh(Node<K, V> node, long newWeight) {
+            weight += newWeight - node.weight;
+            if (node.inProtected) {
+                protectedWeight += newWeight - node.weight;
+            }
+            node.weight = newWeight;
+        }
+
+        private void remove(Node<K, V> node) {
+            node.unlink();
+            map.remove(node.key);
+            weight -= node.weight;
+            if (node.inProtected) {
+                protectedWeight -= node.weight;
+            }
+        }
+
+        private void clear() {
+            map.clear();
+            probation.next = probation.prev = probation;
+            protectedHead.next = protectedHead.prev = protectedHead;
+            weight = 0;
+            protectedWeight = 0;
+        }
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private V value;
+        private long weight;
+        private long writeNanos;
+        private long accessNanos;
+        private boolean inProtected;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        private Node(K key, V value, long weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeNanos = now;
+            this.accessNanos = now;
+        }
+
+        private static <K, V> Node<K, V> sentinel() {
+            Node<K, V> node = new Node<>(null, null, 0, 0);
+            node.prev = node;
+            node.next = node;
+            return node;
+        }
+
+        private void linkAfter(Node<K, V> head) {
+            prev = head;
+            next = head.next;
+            head.next.prev = this;
+            head.next = this;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+
+    public static final class Builder<K, V> {
+        private long maximumWeight = 64L * 1024 * 1024;
+        private int concurrencyLevel = 16;
+        private Weigher<? super K, ? super V> weigher = (key, value) -> 0;
+        private long expireAfterWriteNanos;
+        private long expireAfterAccessNanos;
+        private LongSupplier nanoClock = System::nanoTime;
+
+        private Builder() {
+        }
+
+        public Builder<K, V> maximumWeight(long maximumWeight) {
+            if (maximumWeight <= 0) {
+                throw new IllegalArgumentException("maximumWeight must be positive: " + maximumWeight);
+            }
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        public Builder<K, V> concurrencyLevel(int concurrencyLevel) {
+            if (concurrencyLevel <= 0 || concurrencyLevel > 1 << 16) {
+                throw new IllegalArgumentException("concurrencyLevel out of range: " + concurrencyLevel);
+            }
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        public Builder<K, V> weigher(Weigher<? super K, ? super V> weigher) {
+            this.weigher = weigher;
+            return this;
+        }
+
+        public Builder<K, V> expireAfterWrite(long duration, TimeUnit unit) {
+            this.expireAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder<K, V> expireAfterAccess(long duration, TimeUnit unit) {
+            this.expireAfterAccessNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder<K, V> nanoClock(LongSupplier nanoClock) {
+            this.nanoClock = nanoClock;
+            return this;
+        }
+
+        public SegmentedLruCache<K, V> build() {
+            return new SegmentedLruCache<>(this);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.businesscodepit.seventeen.cache;
+
+import com.example.businesscodepit.seventeen.bean.User;
+import com.example.businesscodepit.seventeen.bean.UserProfile;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     OffHeapUserProfileStore 中一条记录的只读视图（flyweight），由调用方创建一次后反复传给 get 复用
+ *     视图只保存缓冲区和记录的偏移量，读取字段时才从堆外解码，不需要的字段不会产生任何对象
+ *     视图指向的是 get 时的记录，之后同一个用户被重新写入或者 store 被压缩时视图内容不会跟着变化
+ * @author yaoyong
+ **/
+public final class UserProfileView {
+    private ByteBuffer buffer;
+    private int offset;
+
+    void wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    public int nameLength() {
+        return buffer.getShort(offset + OffHeapUserProfileStore.NAME_LENGTH_OFFSET) & 0xFFFF;
+    }
+
+    public int locationLength() {
+        return buffer.getShort(offset + OffHeapUserProfileStore.LOCATION_LENGTH_OFFSET) & 0xFFFF;
+    }
+
+    public String name() {
+        return decode(offset + OffHeapUserProfileStore.HEADER_BYTES, nameLength());
+    }
+
+    public String location() {
+        return decode(offset + OffHeapUserProfileStore.HEADER_BYTES + nameLength(), locationLength());
+    }
+
+    /**
+     * 在堆上创建一份完整的 UserProfile，只在确实需要对象时调用
+     */
+    public UserProfile toUserProfile() {
+        return new UserProfile(new User(name()), location());
+    }
+
+    private String decode(int position, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
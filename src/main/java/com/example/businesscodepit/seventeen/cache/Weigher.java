@@ -0,0 +1,14 @@
+package com.example.businesscodepit.seventeen.cache;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     估算一个缓存条目占用的堆内存字节数，只需要计算 key 和 value 自己，缓存内部节点的开销由 SegmentedLruCache 统一加上
+ * @author yaoyong
+ **/
+@FunctionalInterface
+public interface Weigher<K, V> {
+    long weigh(K key, V value);
+}
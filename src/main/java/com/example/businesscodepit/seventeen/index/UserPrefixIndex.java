@@ -0,0 +1,238 @@
+package com.example.businesscodepit.seventeen.index;
+
+import com.example.businesscodepit.seventeen.bean.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     用户名自动补全索引，代替 GcTestController#test1 中"每个前缀一个 key、每个 key 一份 User 拷贝"的做法
+ *     1.所有 User 只保存一份，放在 users 表中，用户 id 就是在表中的下标；索引里只有 int 数组，不复制任何字符串
+ *     2.sorted 是按用户名字典序排好的用户 id，相当于一棵隐式的前缀树：同一前缀的用户在 sorted 中是连续的一段，
+ *       两次二分查找就能得到这一段的范围，不需要为每个前缀建节点
+ *     3.在 sorted 的顺序上建一棵线段树，每个节点保存区间内得分最高的位置；取前 K 个时用优先队列每次拆分区间，
+ *       复杂度 O(K * log n)，与前缀匹配到多少用户无关
+ *     每个用户的索引开销是 sorted、scores、用户名引用各 4 字节加上线段树 8~16 字节，共二三十字节，200 万用户构建只需要几秒
+ *     用户名区分大小写；得分相同时按用户名字典序返回
+ * @author yaoyong
+ **/
+public final class UserPrefixIndex {
+    private final User[] users;
+    private final String[] names;
+    private final int[] scores;
+    private final int[] sorted;
+    private final int[] tree;
+    private final int leaves;
+
+    private UserPrefixIndex(User[] users, int[] scores) {
+        this.users = users;
+        this.names = new String[users.length];
+        for (int i = 0; i < users.length; i++) {
+            names[i] = users[i].getName();
+        }
+        this.scores = scores;
+        this.sorted = sortByName();
+        int size = 1;
+        while (size < Math.max(1, sorted.length)) {
+            size <<= 1;
+        }
+        this.leaves = size;
+        this.tree = buildTree();
+    }
+
+    /**
+     * @param users  共享的用户表，下标即用户 id，构建后不应再修改
+     * @param scores 每个用户的得分（比如热度），长度与 users 相同；传 null 表示所有用户得分相同，按字典序返回
+     */
+    public static UserPrefixIndex build(List<User> users, int[] scores) {
+        if (scores != null && scores.length != users.size()) {
+            throw new IllegalArgumentException("scores length " + scores.length + " != users size " + users.size());
+        }
+        return new UserPrefixIndex(users.toArray(new User[0]), scores == null ? new int[users.size()] : scores.clone());
+    }
+
+    public int size() {
+        return users.length;
+    }
+
+    public User user(int id) {
+        return users[id];
+    }
+
+    /**
+     * 用户名以 prefix 开头的用户数
+     */
+    public int count(String prefix) {
+        return upperBound(prefix) - lowerBound(prefix);
+    }
+
+    public List<User> topK(String prefix, int k) {
+        int[] ids = topKIds(prefix, k);
+        List<User> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(users[id]);
+        }
+        return result;
+    }
+
+    /**
+     * 用户名以 prefix 开头、得分最高的 k 个用户 id，按得分从高到低排列
+     */
+    public int[] topKIds(String prefix, int k) {
+        int from = lowerBound(prefix);
+        int to = upperBound(prefix);
+        int limit = Math.min(k, to - from);
+        if (limit <= 0) {
+            return new int[0];
+        }
+        int[] result = new int[limit];
+        //队列中的每个元素是 sorted 上的一个区间 [from, to) 以及区间内得分最高的位置
+        PriorityQueue<int[]> candidates = new PriorityQueue<>(limit * 2, (a, b) -> better(a[2], b[2]) ? -1 : 1);
+        candidates.add(new int[]{from, to, argMax(from, to)});
+        for (int i = 0; i < limit; i++) {
+            int[] range = candidates.poll();
+            int position = range[2];
+            result[i] = sorted[position];
+            if (range[0] < position) {
+                candidates.add(new int[]{range[0], position, argMax(range[0], position)});
+            }
+            if (position + 1 < range[1]) {
+                candidates.add(new int[]{position + 1, range[1], argMax(position + 1, range[1])});
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 索引自身（不含共享的 User 和用户名字符串）占用的大致字节数
+     */
+    public long estimatedIndexBytes() {
+        return 4L * (sorted.length + scores.length + tree.length) + 4L * names.length;
+    }
+
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparePrefix(names[sorted[mid]], prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(String prefix) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparePrefix(names[sorted[mid]], prefix) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 只比较 name 的前 prefix.length() 个字符，name 以 prefix 开头时返回 0
+     */
+    private static int comparePrefix(String name, String prefix) {
+        int length = Math.min(name.length(), prefix.length());
+        for (int i = 0; i < length; i++) {
+            int diff = name.charAt(i) - prefix.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return name.length() < prefix.length() ? -1 : 0;
+    }
+
+    /**
+     * 位置 a 是否比位置 b 更靠前：得分高的优先，得分相同时位置小（字典序小）的优先
+     */
+    private boolean better(int a, int b) {
+        int scoreA = scores[sorted[a]];
+        int scoreB = scores[sorted[b]];
+        return scoreA > scoreB || (scoreA == scoreB && a < b);
+    }
+
+    private int[] buildTree() {
+        int[] result = new int[leaves * 2];
+        Arrays.fill(result, -1);
+        for (int i = 0; i < sorted.length; i++) {
+            result[leaves + i] = i;
+        }
+        for (int node = leaves - 1; node > 0; node--) {
+            result[node] = pick(result[node * 2], result[node * 2 + 1]);
+        }
+        return result;
+    }
+
+    private int pick(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        return better(a, b) ? a : b;
+    }
+
+    private int argMax(int from, int to) {
+        int best = -1;
+        for (int left = from + leaves, right = to + leaves; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) {
+                best = pick(best, tree[left++]);
+            }
+            if ((right & 1) == 1) {
+                best = pick(best, tree[--right]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 对用户 id 按用户名做自底向上的归并排序，直接在 int 数组上进行，避免 Integer 装箱
+     */
+    private int[] sortByName() {
+        int length = names.length;
+        int[] source = new int[length];
+        for (int i = 0; i < length; i++) {
+            source[i] = i;
+        }
+        int[] target = new int[length];
+        for (int width = 1; width < length; width <<= 1) {
+            for (int left = 0; left < length; left += width << 1) {
+                int middle = Math.min(left + width, length);
+                int right = Math.min(left + (width << 1), length);
+                int i = left;
+                int j = middle;
+                int k = left;
+                while (i < middle && j < right) {
+                    target[k++] = names[source[i]].compareTo(names[source[j]]) <= 0 ? source[i++] : source[j++];
+                }
+                while (i < middle) {
+                    target[k++] = source[i++];
+                }
+                while (j < right) {
+                    target[k++] = source[j++];
+                }
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        return source;
+    }
+}
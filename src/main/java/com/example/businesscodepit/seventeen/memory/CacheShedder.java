@@ -0,0 +1,18 @@
+package com.example.businesscodepit.seventeen.memory;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     堆内存紧张时由 HeapPressureMonitor 调用，按比例丢弃缓存内容
+ * @author yaoyong
+ **/
+@FunctionalInterface
+public interface CacheShedder {
+    /**
+     * @param fraction 需要丢弃的比例，0 到 1 之间
+     * @return 估算释放的字节数，无法估算时返回 0
+     */
+    long shed(double fraction);
+}
@@ -0,0 +1,313 @@
+package com.example.businesscodepit.seventeen.memory;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     在 OOM 之前对堆内存压力做出反应，而不是等 OOM 之后再用 jstat、堆 dump 事后分析
+ *     线上事故通常不是突然 OOM，而是老年代越来越满、GC 越来越频繁、每次回收得越来越少的"死亡螺旋"
+ *     1.在老年代内存池上设置 usage threshold 和 collection usage threshold（取最低水位线），
+ *       并监听所有 GarbageCollectorMXBean 的 GC 通知
+ *     2.判断压力只看 GC 之后的老年代占用，GC 之前的占用包含还没回收的垃圾，不能说明内存真的不够
+ *     3.占用超过第 i 条水位线时，调用所有注册的 CacheShedder 丢弃 shedFractions[i] 比例的缓存，
+ *       两次丢弃至少间隔 MIN_SHED_INTERVAL_NANOS，避免连续几次 GC 把缓存清空
+ *     4.同时统计每个收集器的停顿次数、总耗时、最大耗时，以及根据相邻两次 GC 前后堆占用之差估算的分配速率
+ *     通知在 JMX 的通知线程上回调，丢弃缓存放到单独的线程执行，不阻塞后续通知
+ *     水位线和比例通过 business.heap-pressure.watermarks、business.heap-pressure.shed-fractions 配置
+ * @author yaoyong
+ **/
+@Slf4j
+@Component
+public class HeapPressureMonitor {
+    static final long MIN_SHED_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double[] watermarks;
+    private final double[] shedFractions;
+    private final Map<String, CacheShedder> shedders = new ConcurrentHashMap<>();
+    private final Map<String, PauseStats> pauses = new ConcurrentHashMap<>();
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener listener = this::handleNotification;
+    private final LongAdder thresholdNotifications = new LongAdder();
+    private final LongAdder sheds = new LongAdder();
+    private final LongAdder shedBytes = new LongAdder();
+    private final AtomicLong lastShedNanos = new AtomicLong(System.nanoTime() - MIN_SHED_INTERVAL_NANOS);
+    private volatile MemoryPoolMXBean oldGen;
+    private volatile double lastOldGenRatio;
+    private volatile int lastLevel = -1;
+    private ExecutorService shedExecutor;
+
+    private long lastGcEndMillis = -1;
+    private long lastHeapAfterGc;
+    private volatile double allocationBytesPerSecond;
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    public HeapPressureMonitor(@Value("${business.heap-pressure.watermarks:0.70,0.80,0.90}") String watermarks,
+                               @Value("${business.heap-pressure.shed-fractions:0.10,0.25,0.50}") String shedFractions) {
+        this.watermarks = parse(watermarks);
+        this.shedFractions = parse(shedFractions);
+        if (this.watermarks.length == 0 || this.watermarks.length != this.shedFractions.length) {
+            throw new IllegalArgumentException("watermarks and shed-fractions must be non-empty and of equal length");
+        }
+        for (int i = 1; i < this.watermarks.length; i++) {
+            if (this.watermarks[i] <= this.watermarks[i - 1]) {
+                throw new IllegalArgumentException("watermarks must be increasing: " + watermarks);
+            }
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        shedExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "heap-pressure-shedder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        oldGen = findOldGen();
+        if (oldGen != null) {
+            long max = oldGen.getUsage().getMax();
+            if (max > 0) {
+                long threshold = (long) (max * watermarks[0]);
+                if (oldGen.isUsageThresholdSupported()) {
+                    oldGen.setUsageThreshold(threshold);
+                }
+                if (oldGen.isCollectionUsageThresholdSupported()) {
+                    oldGen.setCollectionUsageThreshold(threshold);
+                }
+            }
+            addListener(ManagementFactory.getMemoryMXBean());
+        }
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            addListener(collector);
+        }
+        log.info("heap pressure monitor started, old gen pool:{}, watermarks:{}, shed fractions:{}",
+                oldGen == null ? null : oldGen.getName(), Arrays.toString(watermarks), Arrays.toString(shedFractions));
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (ListenerNotFoundException ignored) {
+            }
+        }
+        emitters.clear();
+        if (shedExecutor != null) {
+            shedExecutor.shutdownNow();
+        }
+    }
+
+    public void register(String name, CacheShedder shedder) {
+        shedders.put(name, shedder);
+    }
+
+    public void unregister(String name) {
+        shedders.remove(name);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        MemoryPoolMXBean pool = oldGen;
+        result.put("oldGenPool", pool == null ? null : pool.getName());
+        if (pool != null) {
+            MemoryUsage usage = pool.getUsage();
+            MemoryUsage collectionUsage = pool.getCollectionUsage();
+            result.put("oldGenUsedBytes", usage.getUsed());
+            result.put("oldGenUsedAfterGcBytes", collectionUsage == null ? null : collectionUsage.getUsed());
+            result.put("oldGenMaxBytes", usage.getMax());
+        }
+        result.put("lastOldGenRatio", lastOldGenRatio);
+        result.put("lastLevel", lastLevel);
+        result.put("watermarks", watermarks);
+        result.put("shedFractions", shedFractions);
+        result.put("thresholdNotifications", thresholdNotifications.sum());
+        result.put("sheds", sheds.sum());
+        result.put("shedBytes", shedBytes.sum());
+        result.put("shedders", new ArrayList<>(new TreeMap<>(shedders).keySet()));
+        result.put("allocatedBytes", allocatedBytes.get());
+        result.put("allocationBytesPerSecond", (long) allocationBytesPerSecond);
+        Map<String, Object> gc = new TreeMap<>();
+        pauses.forEach((name, stats) -> gc.put(name, stats.snapshot()));
+        result.put("gc", gc);
+        return result;
+    }
+
+    /**
+     * 根据 GC 后老年代的占用比例决定是否丢弃缓存，返回命中的水位线下标，没有超过任何水位线或者还在间隔内返回 -1
+     */
+    int evaluate(long usedAfterGc, long max) {
+        if (max <= 0) {
+            return -1;
+        }
+        double ratio = (double) usedAfterGc / max;
+        lastOldGenRatio = ratio;
+        int level = -1;
+        for (int i = 0; i < watermarks.length; i++) {
+            if (ratio >= watermarks[i]) {
+                level = i;
+            }
+        }
+        lastLevel = level;
+        if (level < 0) {
+            return -1;
+        }
+        long now = System.nanoTime();
+        long last = lastShedNanos.get();
+        if (now - last < MIN_SHED_INTERVAL_NANOS || !lastShedNanos.compareAndSet(last, now)) {
+            return -1;
+        }
+        double fraction = shedFractions[level];
+        long freed = 0;
+        for (Map.Entry<String, CacheShedder> entry : shedders.entrySet()) {
+            try {
+                freed += entry.getValue().shed(fraction);
+            } catch (RuntimeException e) {
+                log.warn("cache shedder {} failed", entry.getKey(), e);
+            }
+        }
+        sheds.increment();
+        shedBytes.add(freed);
+        log.warn("old gen at {}% after GC, crossed watermark {}, shed {} of {} caches, freed ~{} bytes",
+                Math.round(ratio * 100), watermarks[level], fraction, shedders.size(), freed);
+        return level;
+    }
+
+    private void handleNotification(Notification notification, Object handback) {
+        String type = notification.getType();
+        if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(type)) {
+            GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            onGc(info);
+        } else if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type)
+                || MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(type)) {
+            thresholdNotifications.increment();
+        }
+    }
+
+    private void onGc(GarbageCollectionNotificationInfo info) {
+        GcInfo gcInfo = info.getGcInfo();
+        pauses.computeIfAbsent(info.getGcName(), key -> new PauseStats()).record(gcInfo.getDuration());
+        long heapBefore = 0;
+        long heapAfter = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            MemoryUsage before = gcInfo.getMemoryUsageBeforeGc().get(pool.getName());
+            MemoryUsage after = gcInfo.getMemoryUsageAfterGc().get(pool.getName());
+            heapBefore += before == null ? 0 : before.getUsed();
+            heapAfter += after == null ? 0 : after.getUsed();
+        }
+        //通知线程是单线程回调的，这里的状态只在通知线程上修改
+        if (lastGcEndMillis >= 0 && heapBefore > lastHeapAfterGc) {
+            long allocated = heapBefore - lastHeapAfterGc;
+            allocatedBytes.addAndGet(allocated);
+            long elapsedMillis = gcInfo.getStartTime() - lastGcEndMillis;
+            if (elapsedMillis > 0) {
+                allocationBytesPerSecond = allocated * 1000.0 / elapsedMillis;
+            }
+        }
+        lastGcEndMillis = gcInfo.getEndTime();
+        lastHeapAfterGc = heapAfter;
+
+        MemoryPoolMXBean pool = oldGen;
+        if (pool == null) {
+            return;
+        }
+        MemoryUsage oldAfter = gcInfo.getMemoryUsageAfterGc().get(pool.getName());
+        if (oldAfter != null && oldAfter.getMax() > 0
+                && (double) oldAfter.getUsed() / oldAfter.getMax() >= watermarks[0]) {
+            shedExecutor.execute(() -> evaluate(oldAfter.getUsed(), oldAfter.getMax()));
+        }
+    }
+
+    private void addListener(Object bean) {
+        if (bean instanceof NotificationEmitter) {
+            NotificationEmitter emitter = (NotificationEmitter) bean;
+            emitter.addNotificationListener(listener, null, null);
+            emitters.add(emitter);
+        }
+    }
+
+    /**
+     * 老年代内存池：名字中带 Old 或 Tenured 的堆内存池，找不到时退而求其次取支持 collection usage threshold 的最后一个堆内存池
+     */
+    private static MemoryPoolMXBean findOldGen() {
+        MemoryPoolMXBean fallback = null;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isCollectionUsageThresholdSupported()) {
+                continue;
+            }
+            String name = pool.getName();
+            if (name.contains("Old") || name.contains("Tenured")) {
+                return pool;
+            }
+            fallback = pool;
+        }
+        return fallback;
+    }
+
+    private static double[] parse(String values) {
+        return Arrays.stream(values.split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .mapToDouble(Double::parseDouble)
+                .toArray();
+    }
+
+    private static final class PauseStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+        private final AtomicLong maxMillis = new AtomicLong();
+        private volatile long lastMillis;
+
+        private void record(long millis) {
+            count.increment();
+            totalMillis.add(millis);
+            maxMillis.accumulateAndGet(millis, Math::max);
+            lastMillis = millis;
+        }
+
+        private Map<String, Object> snapshot() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("count", count.sum());
+            result.put("totalMillis", totalMillis.sum());
+            result.put("maxMillis", maxMillis.get());
+            result.put("lastMillis", lastMillis);
+            return result;
+        }
+    }
+}
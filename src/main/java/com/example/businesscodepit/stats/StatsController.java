@@ -0,0 +1,34 @@
+package com.example.businesscodepit.stats;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     以 JSON 返回 StatsSampler 中的时间序列，prefix 用于只看某一类指标，比如 oom.
+ * @author yaoyong
+ **/
+@RestController
+@RequestMapping("stats")
+public class StatsController {
+    @Autowired
+    private StatsSampler statsSampler;
+
+    @GetMapping
+    public Map<String, Object> stats(@RequestParam(name = "prefix", required = false) String prefix) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("periodMillis", statsSampler.getPeriodMillis());
+        result.put("errors", statsSampler.getErrors());
+        result.put("series", statsSampler.snapshot(prefix));
+        return result;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.businesscodepit.stats;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     共享的指标采样服务，代替 testWeakHashMap、ThreadPoolTest#printStats 中各自创建又从不关闭的定时线程池
+ *     1.缓存、线程池、队列等组件通过 register 注册一个 gauge（返回当前值的函数），同名的 gauge 会被替换
+ *     2.只有一个采样线程，每 periodMillis 调用一次所有 gauge，结果写入各自固定容量的 TimeSeries，
+ *       内存占用固定，不会像打日志那样越积越多，还能通过 /stats 接口看到最近一段时间的变化
+ *     3.gauge 抛出异常时跳过这一次采样并计数，不影响其它 gauge
+ *     4.缓存清理这类需要定期执行、又不值得单独开一个线程的维护任务可以通过 registerHousekeeping 挂在采样线程上，
+ *       每次采样时检查是否到期，间隔按采样周期取整
+ *     在 Spring 中作为单例使用；测试等非 Spring 场景可以自己 new 一个，用完调用 close
+ * @author yaoyong
+ **/
+@Slf4j
+@Component
+public class StatsSampler {
+    private final long periodMillis;
+    private final int capacity;
+    private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Housekeeping> housekeeping = new ConcurrentHashMap<>();
+    private final LongAdder errors = new LongAdder();
+    private ScheduledExecutorService scheduler;
+
+    public StatsSampler(@Value("${business.stats.period-millis:1000}") long periodMillis,
+                        @Value("${business.stats.capacity:300}") int capacity) {
+        if (periodMillis <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("periodMillis and capacity must be positive");
+        }
+        this.periodMillis = periodMillis;
+        this.capacity = capacity;
+    }
+
+    @PostConstruct
+    public synchronized StatsSampler start() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "stats-sampler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::sample, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public void register(String name, DoubleSupplier gauge) {
+        gauges.put(name, new Gauge(gauge, new TimeSeries(capacity)));
+    }
+
+    /**
+     * 线程池的常用指标：线程数、活跃线程数、已完成任务数、队列长度
+     */
+    public void registerThreadPool(String name, ThreadPoolExecutor threadPool) {
+        register(name + ".poolSize", threadPool::getPoolSize);
+        register(name + ".activeThreads", threadPool::getActiveCount);
+        register(name + ".completedTasks", threadPool::getCompletedTaskCount);
+        register(name + ".queueSize", () -> threadPool.getQueue().size());
+    }
+
+    public void unregister(String name) {
+        gauges.remove(name);
+        housekeeping.remove(name);
+    }
+
+    /**
+     * 每隔 intervalMillis 在采样线程上执行一次 task，同名的任务会被替换；task 应该很快返回，否则会推迟其它 gauge 的采样
+     */
+    public void registerHousekeeping(String name, long intervalMillis, Runnable task) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis must be positive");
+        }
+        housekeeping.put(name, new Housekeeping(task, intervalMillis));
+    }
+
+    /**
+     * 名称以 prefix 开头的所有时间序列，prefix 为空时返回全部
+     */
+    public Map<String, Map<String, Object>> snapshot(String prefix) {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        gauges.forEach((name, gauge) -> {
+            if (prefix == null || name.startsWith(prefix)) {
+                result.put(name, gauge.series.snapshot());
+            }
+        });
+        return result;
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    void sample() {
+        sample(System.currentTimeMillis());
+    }
+
+    void sample(long now) {
+        housekeeping.forEach((name, task) -> {
+            if (task.nextRunMillis == 0) {
+                task.nextRunMillis = now + task.intervalMillis;
+                return;
+            }
+            if (now < task.nextRunMillis) {
+                return;
+            }
+            task.nextRunMillis = now + task.intervalMillis;
+            try {
+                task.task.run();
+            } catch (RuntimeException e) {
+                errors.increment();
+                log.warn("housekeeping {} failed", name, e);
+            }
+        });
+        gauges.forEach((name, gauge) -> {
+            try {
+                gauge.series.add(now, gauge.supplier.getAsDouble());
+            } catch (RuntimeException e) {
+                errors.increment();
+                log.debug("gauge {} failed", name, e);
+            }
+        });
+    }
+
+    private static final class Housekeeping {
+        private final Runnable task;
+        private final long intervalMillis;
+        //只在采样线程上读写
+        private long nextRunMillis;
+
+        private Housekeeping(Runnable task, long intervalMillis) {
+            this.task = task;
+            this.intervalMillis = intervalMillis;
+        }
+    }
+
+    private static final class Gauge {
+        private final DoubleSupplier supplier;
+        private final TimeSeries series;
+
+        private Gauge(DoubleSupplier supplier, TimeSeries series) {
+            this.supplier = supplier;
+            this.series = series;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.businesscodepit.stats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     固定容量的时间序列，保存最近 capacity 次采样的时间戳和值，写满后覆盖最旧的
+ *     只有采样线程写入，读取接口的线程读取，两边用 this 加锁，每秒一次的频率下锁没有竞争
+ * @author yaoyong
+ **/
+public class TimeSeries {
+    private final long[] timestamps;
+    private final double[] values;
+    private long count;
+
+    public TimeSeries(int capacity) {
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+    }
+
+    public synchronized void add(long timestamp, double value) {
+        int index = (int) (count++ % timestamps.length);
+        timestamps[index] = timestamp;
+        values[index] = value;
+    }
+
+    public synchronized int size() {
+        return (int) Math.min(count, timestamps.length);
+    }
+
+    /**
+     * 按时间从旧到新排列的快照
+     */
+    public synchronized Map<String, Object> snapshot() {
+        int size = size();
+        long[] orderedTimestamps = new long[size];
+        double[] orderedValues = new double[size];
+        long first = count - size;
+        for (int i = 0; i < size; i++) {
+            int index = (int) ((first + i) % timestamps.length);
+            orderedTimestamps[i] = timestamps[index];
+            orderedValues[i] = values[index];
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("last", size == 0 ? null : orderedValues[size - 1]);
+        result.put("samples", count);
+        result.put("timestamps", orderedTimestamps);
+        result.put("values", orderedValues);
+        return result;
+    }
+}
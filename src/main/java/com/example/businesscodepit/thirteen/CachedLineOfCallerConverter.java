@@ -0,0 +1,26 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.pattern.ClassicConverter;
+import ch.qos.logback.classic.spi.CallerData;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     代替 logback 自带的 %line（LineOfCallerConverter），调用方数据通过 CallerDataCache 获取
+ *     在配置文件中通过 conversionRule 覆盖 line：
+ *         <conversionRule conversionWord="line" converterClass="com.example.businesscodepit.thirteen.CachedLineOfCallerConverter"/>
+ * @author yaoyong
+ **/
+public class CachedLineOfCallerConverter extends ClassicConverter {
+    @Override
+    public String convert(ILoggingEvent event) {
+        StackTraceElement[] callerData = CallerDataCache.resolve(event);
+        if (callerData != null && callerData.length > 0) {
+            return Integer.toString(callerData[0].getLineNumber());
+        }
+        return CallerData.NA;
+    }
+}
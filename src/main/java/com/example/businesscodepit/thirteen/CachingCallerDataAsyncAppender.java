@@ -0,0 +1,26 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     includeCallerData 为 true 时，AsyncAppender 在调用线程上为每条日志生成一次异常栈来获取调用方数据，
+ *     这里改为通过 CallerDataCache 获取，命中缓存时直接把缓存的栈帧设置到事件上；
+ *     不收集时只使用已确认的缓存结果，避免后台线程格式化 %line 时在自己的线程上生成异常栈
+ * @author yaoyong
+ **/
+public class CachingCallerDataAsyncAppender extends AsyncAppender {
+    @Override
+    protected void preprocess(ILoggingEvent eventObject) {
+        eventObject.prepareForDeferredProcessing();
+        if (eventObject instanceof LoggingEvent) {
+            ((LoggingEvent) eventObject).setCallerData(isIncludeCallerData()
+                    ? CallerDataCache.resolve(eventObject) : CallerDataCache.cachedOrEmpty(eventObject));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.spi.CallerData;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     调用方位置（%line、includeCallerData）的缓存
+ *     logback 每次获取调用方数据都要 new Throwable() 并生成完整的异常栈，再从里面找出第一个不属于日志框架的栈帧，
+ *     日志量大时这部分开销比格式化本身还大。Java 8 没有 StackWalker，没办法只遍历前几个栈帧，所以改为缓存：
+ *     1.同一个 logger 下同一个消息模板（字符串字面量，按对象身份比较）几乎总是来自同一个调用点，
+ *       以 logger 名称 + 模板的身份作为 key 缓存调用方那一个栈帧
+ *     2.动态拼接出来的消息每次都是新的字符串对象，不能缓存，否则缓存会被撑满。
+ *       所以第一次见到某个 key 时只在 probation 数组中记下它（模板只保存弱引用，按身份精确比较，不会因为哈希冲突误判），
+ *       第二次见到同一个对象才放入缓存
+ *     3.刚放入缓存的条目还不能直接使用：之后的 CONFIRMATIONS 次命中仍然生成异常栈，和缓存的栈帧比较，
+ *       全部一致才确认这个调用点，之后才直接返回缓存；只要有一次不一致（同一个字面量在两处记录日志，比如两处都是 log.info("ok")），
+ *       这个 key 就标记为有歧义，以后始终走 logback 原来的方式
+ *     4.缓存最多 MAX_ENTRIES 条；线程内复用的查找 key 用完立刻清空，不会让最后一条日志的模板一直留在线程上
+ *     局限：确认之后才第一次执行到的另一个同模板调用点，行号仍然会显示为已确认的那一处
+ * @author yaoyong
+ **/
+public final class CallerDataCache {
+    static final int MAX_ENTRIES = 4096;
+    static final int CONFIRMATIONS = 8;
+    private static final int PROBATION_SIZE = 1024;
+
+    private static final ConcurrentHashMap<Key, Entry> CACHE = new ConcurrentHashMap<>();
+    private static final AtomicReferenceArray<Candidate> PROBATION = new AtomicReferenceArray<>(PROBATION_SIZE);
+    private static final ThreadLocal<Key> LOOKUP = ThreadLocal.withInitial(Key::new);
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    private CallerDataCache() {
+    }
+
+    /**
+     * 返回事件的调用方数据，命中已确认的缓存时不会生成异常栈；其它情况和 ILoggingEvent#getCallerData 一样，必须在记录日志的线程上调用
+     */
+    public static StackTraceElement[] resolve(ILoggingEvent event) {
+        String format = event.getMessage();
+        String loggerName = event.getLoggerName();
+        if (format == null || loggerName == null) {
+            return event.getCallerData();
+        }
+        Key lookup = LOOKUP.get().set(loggerName, format);
+        Entry entry;
+        try {
+            entry = CACHE.get(lookup);
+        } finally {
+            lookup.clear();
+        }
+        if (entry != null && entry.confirmed()) {
+            HITS.increment();
+            return entry.frame;
+        }
+        MISSES.increment();
+        StackTraceElement[] callerData = event.getCallerData();
+        if (callerData == null || callerData.length == 0) {
+            return callerData;
+        }
+        if (entry != null) {
+            entry.verify(callerData[0]);
+        } else if (CACHE.size() < MAX_ENTRIES) {
+            int slot = lookup.hash & (PROBATION_SIZE - 1);
+            Candidate candidate = PROBATION.get(slot);
+            if (candidate != null && candidate.matches(loggerName, format)) {
+                CACHE.putIfAbsent(new Key().set(loggerName, format), new Entry(callerData[0]));
+                PROBATION.compareAndSet(slot, candidate, null);
+            } else {
+                PROBATION.lazySet(slot, new Candidate(loggerName, format));
+            }
+        }
+        return callerData;
+    }
+
+    /**
+     * 只查已确认的缓存，不会生成异常栈，没有时返回空数组
+     * 用于不收集调用方数据的异步 Appender：在调用线程上先把已知的调用方设置到事件上，
+     * 避免后台线程格式化 %line 时在自己的线程上生成一个毫无意义的异常栈
+     */
+    public static StackTraceElement[] cachedOrEmpty(ILoggingEvent event) {
+        String format = event.getMessage();
+        String loggerName = event.getLoggerName();
+        if (format != null && loggerName != null) {
+            Key lookup = LOOKUP.get().set(loggerName, format);
+            Entry entry;
+            try {
+                entry = CACHE.get(lookup);
+            } finally {
+                lookup.clear();
+            }
+            if (entry != null && entry.confirmed()) {
+                HITS.increment();
+                return entry.frame;
+            }
+        }
+        return CallerData.EMPTY_CALLER_DATA_ARRAY;
+    }
+
+    public static long size() {
+        return CACHE.size();
+    }
+
+    public static long hits() {
+        return HITS.sum();
+    }
+
+    public static long misses() {
+        return MISSES.sum();
+    }
+
+    private static final class Key {
+        private String loggerName;
+        private String format;
+        private int hash;
+
+        private Key set(String loggerName, String format) {
+            this.loggerName = loggerName;
+            this.format = format;
+            int h = loggerName.hashCode() * 31 + System.identityHashCode(format);
+            this.hash = h ^ (h >>> 16);
+            return this;
+        }
+
+        private void clear() {
+            this.loggerName = null;
+            this.format = null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return format == key.format && loggerName.equals(key.loggerName);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * 只见过一次的 key，模板只保存弱引用，动态拼接的消息不会因为进了 probation 数组而无法回收
+     */
+    private static final class Candidate {
+        private final String loggerName;
+        private final WeakReference<String> format;
+
+        private Candidate(String loggerName, String format) {
+            this.loggerName = loggerName;
+            this.format = new WeakReference<>(format);
+        }
+
+        private boolean matches(String loggerName, String format) {
+            return this.format.get() == format && this.loggerName.equals(loggerName);
+        }
+    }
+
+    private static final class Entry {
+        private static final int AMBIGUOUS = -1;
+
+        private final StackTraceElement[] frame;
+        //已经验证一致的次数，达到 CONFIRMATIONS 后确认；AMBIGUOUS 表示同一个 key 出现过不同的调用点
+        private volatile int verified;
+
+        private Entry(StackTraceElement caller) {
+            this.frame = new StackTraceElement[]{caller};
+        }
+
+        private boolean confirmed() {
+            return verified >= CONFIRMATIONS;
+        }
+
+        private synchronized void verify(StackTraceElement caller) {
+            if (verified == AMBIGUOUS || verified >= CONFIRMATIONS) {
+                return;
+            }
+            verified = frame[0].equals(caller) ? verified + 1 : AMBIGUOUS;
+        }
+    }
+}
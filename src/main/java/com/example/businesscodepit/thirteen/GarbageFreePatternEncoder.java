@@ -0,0 +1,203 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.pattern.TargetLengthBasedClassNameAbbreviator;
+import ch.qos.logback.classic.pattern.ThrowableProxyConverter;
+import ch.qos.logback.classic.spi.CallerData;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.encoder.EncoderBase;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     只支持项目中统一使用的固定格式，输出和下面的 PatternLayoutEncoder 完全一致：
+ *         [%d{yyyy-MM-dd HH:mm:ss.SSS}] [%thread] [%-5level] [%logger{40}:%line] - %msg%n
+ *     PatternLayoutEncoder 每条日志都会生成一个 String 再 getBytes 一次，时间戳也每次重新格式化，
+ *     这里的做法：
+ *     1.时间戳按秒缓存 "yyyy-MM-dd HH:mm:ss." 前缀，同一秒内只追加毫秒数字
+ *     2.logger 名称缩写后按 logger 缓存，logger 数量是有限的
+ *     3.每个线程复用自己的 StringBuilder、char[]、CharsetEncoder 和 ByteBuffer，
+ *       encodeTo 直接把字节编码进 Appender 的缓冲区，除了 encode 方法返回的 byte[] 之外不产生垃圾
+ *     4.%line 通过 CallerDataCache 获取，和 CachedLineOfCallerConverter 一致
+ *     有异常时和 PatternLayout 一样在末尾追加异常栈，这部分仍然由 ThrowableProxyConverter 生成
+ * @author yaoyong
+ **/
+public class GarbageFreePatternEncoder extends EncoderBase<ILoggingEvent> {
+    public static final String PATTERN = "[%d{yyyy-MM-dd HH:mm:ss.SSS}] [%thread] [%-5level] [%logger{40}:%line] - %msg%n";
+    private static final int LOGGER_TARGET_LENGTH = 40;
+    private static final DateTimeFormatter SECOND_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.");
+
+    private Charset charset = StandardCharsets.UTF_8;
+    private final TargetLengthBasedClassNameAbbreviator abbreviator = new TargetLengthBasedClassNameAbbreviator(LOGGER_TARGET_LENGTH);
+    private final ConcurrentHashMap<String, String> abbreviations = new ConcurrentHashMap<>();
+    private final ThrowableProxyConverter throwableConverter = new ThrowableProxyConverter();
+    private ThreadLocal<State> state;
+    private ZoneId zone;
+
+    @Override
+    public void start() {
+        zone = ZoneId.systemDefault();
+        throwableConverter.setContext(getContext());
+        throwableConverter.start();
+        state = ThreadLocal.withInitial(() -> new State(charset));
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        throwableConverter.stop();
+        super.stop();
+    }
+
+    @Override
+    public byte[] headerBytes() {
+        return null;
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return null;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        ByteBuffer bytes = encodeToBuffer(event);
+        byte[] result = new byte[bytes.remaining()];
+        bytes.get(result);
+        return result;
+    }
+
+    /**
+     * 编码到当前线程复用的缓冲区，返回的 ByteBuffer 已经 flip，可以直接读取，
+     * 只在当前线程下一次调用之前有效
+     */
+    public ByteBuffer encodeToBuffer(ILoggingEvent event) {
+        State current = state.get();
+        current.format(this, event);
+        return current.encode();
+    }
+
+    /**
+     * 直接编码到 target 中
+     * @return 写入的字节数；剩余空间不够时返回 -1，target 的 position 不变
+     */
+    public int encodeTo(ILoggingEvent event, ByteBuffer target) {
+        ByteBuffer bytes = encodeToBuffer(event);
+        int length = bytes.remaining();
+        if (target.remaining() < length) {
+            return -1;
+        }
+        target.put(bytes);
+        return length;
+    }
+
+    private String abbreviate(String loggerName) {
+        String abbreviation = abbreviations.get(loggerName);
+        if (abbreviation == null) {
+            abbreviation = abbreviations.computeIfAbsent(loggerName, abbreviator::abbreviate);
+        }
+        return abbreviation;
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    private static final class State {
+        private static final int RETAIN_LIMIT = 64 * 1024;
+        private StringBuilder text = new StringBuilder(256);
+        private final CharsetEncoder charsetEncoder;
+        private final float maxBytesPerChar;
+        private char[] chars = new char[256];
+        private CharBuffer charBuffer = CharBuffer.wrap(chars);
+        private ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        private long cachedSecond = Long.MIN_VALUE;
+        private String secondPrefix;
+
+        private State(Charset charset) {
+            charsetEncoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            maxBytesPerChar = charsetEncoder.maxBytesPerChar();
+        }
+
+        private void format(GarbageFreePatternEncoder owner, ILoggingEvent event) {
+            StringBuilder sb = text;
+            sb.setLength(0);
+            sb.append('[');
+            appendTimestamp(owner, event.getTimeStamp());
+            sb.append("] [").append(event.getThreadName()).append("] [");
+            String level = event.getLevel().levelStr;
+            sb.append(level);
+            for (int i = level.length(); i < 5; i++) {
+                sb.append(' ');
+            }
+            sb.append("] [").append(owner.abbreviate(event.getLoggerName())).append(':');
+            StackTraceElement[] callerData = CallerDataCache.resolve(event);
+            if (callerData != null && callerData.length > 0) {
+                sb.append(callerData[0].getLineNumber());
+            } else {
+                sb.append(CallerData.NA);
+            }
+            sb.append("] - ").append(event.getFormattedMessage()).append(CoreConstants.LINE_SEPARATOR);
+            if (event.getThrowableProxy() != null) {
+                sb.append(owner.throwableConverter.convert(event));
+            }
+        }
+
+        private void appendTimestamp(GarbageFreePatternEncoder owner, long timestamp) {
+            long second = Math.floorDiv(timestamp, 1000L);
+            if (second != cachedSecond) {
+                secondPrefix = SECOND_FORMATTER.format(Instant.ofEpochMilli(second * 1000).atZone(owner.zone));
+                cachedSecond = second;
+            }
+            int millis = (int) Math.floorMod(timestamp, 1000L);
+            text.append(secondPrefix)
+                    .append((char) ('0' + millis / 100))
+                    .append((char) ('0' + millis / 10 % 10))
+                    .append((char) ('0' + millis % 10));
+        }
+
+        private ByteBuffer encode() {
+            int length = text.length();
+            //大日志（比如 1MB 的 payload）之后再遇到普通日志时把缓冲区缩回去，不长期占着线程的内存
+            if (chars.length < length || chars.length > RETAIN_LIMIT && length <= RETAIN_LIMIT) {
+                chars = new char[Math.max(length, 256)];
+                charBuffer = CharBuffer.wrap(chars);
+            }
+            text.getChars(0, length, chars, 0);
+            charBuffer.clear();
+            charBuffer.limit(length);
+            int maxBytes = (int) Math.ceil(length * maxBytesPerChar);
+            if (byteBuffer.capacity() < maxBytes || byteBuffer.capacity() > RETAIN_LIMIT && maxBytes <= RETAIN_LIMIT) {
+                byteBuffer = ByteBuffer.allocate(Math.max(maxBytes, 1024));
+            }
+            byteBuffer.clear();
+            charsetEncoder.reset();
+            CoderResult result = charsetEncoder.encode(charBuffer, byteBuffer, true);
+            if (!result.isUnderflow()) {
+                throw new IllegalStateException("failed to encode log event: " + result);
+            }
+            charsetEncoder.flush(byteBuffer);
+            byteBuffer.flip();
+            if (text.capacity() > RETAIN_LIMIT) {
+                text = new StringBuilder(256);
+            }
+            return byteBuffer;
+        }
+    }
+}
@@ -0,0 +1,541 @@
+package com.example.businesscodepit.thirteen;
+
+import org.apache.logging.log4j.spi.ExtendedLogger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.spi.LocationAwareLogger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     testZhanWeifu 中可以看到，字符串拼接和 {} 占位符在 DEBUG 没有开启时仍然会执行 slowString()，
+ *     只有先判断 isDebugEnabled 或者使用 Log4j2 的 lambda 才能避免。这个门面把这种写法变成默认：
+ *     1.每个级别都有 Supplier 参数的重载（最多 4 个），级别没有开启时参数不会被求值
+ *     2.long、double、boolean 参数的重载在级别没有开启时不会装箱，不产生任何对象；
+ *       级别开启时仍然要通过 Object... 交给底层 logger（SLF4J、Log4j2 API 都只接受 Object 参数），
+ *       和直接调用底层 logger 一样会创建参数数组并装箱，这些重载只省掉了不输出的日志的开销
+ *     3.每个 LazyLogger 缓存了底层 logger 当前的有效级别，判断是否开启只需要读一次 volatile 变量，
+ *       不用每次都走 SLF4J / Log4j2 的级别判断（logback 需要沿着 logger 的继承关系取有效级别）
+ *     4.底层可以是 SLF4J 也可以是 Log4j2 API 的 logger；级别缓存通过 LogbackLevelListener 在 logback 配置变化
+ *       （重新加载配置、修改某个 logger 的级别）时统一刷新，Log4j2 API 通过 log4j-to-slf4j 最终也落在 logback 上
+ *     5.按底层 logger 对象缓存，同一个 logger 多次调用 of 返回同一个 LazyLogger，注册表的大小不超过 logger 的数量
+ *     6.底层支持时（SLF4J 的 LocationAwareLogger、Log4j2 的 ExtendedLogger）把 LazyLogger 的类名作为 FQCN 传下去，
+ *       %line、%class 等调用方信息显示的是调用 LazyLogger 的业务代码，而不是 LazyLogger 内部
+ *     用法：
+ *         private static final LazyLogger LAZY_LOG = LazyLogger.getLogger(XXX.class);
+ *         LAZY_LOG.debug("debug:{}", () -> slowString("debug"));
+ * @author yaoyong
+ **/
+public final class LazyLogger {
+    static final int TRACE = 0;
+    static final int DEBUG = 1;
+    static final int INFO = 2;
+    static final int WARN = 3;
+    static final int ERROR = 4;
+    static final int OFF = 5;
+
+    private static final String FQCN = LazyLogger.class.getName();
+    private static final ConcurrentHashMap<Object, LazyLogger> LOGGERS = new ConcurrentHashMap<>();
+
+    static {
+        LogbackLevelListener.install();
+    }
+
+    private final Backend backend;
+    private volatile int threshold;
+
+    private LazyLogger(Backend backend) {
+        this.backend = backend;
+        this.threshold = backend.threshold();
+    }
+
+    public static LazyLogger getLogger(Class<?> clazz) {
+        return of(LoggerFactory.getLogger(clazz));
+    }
+
+    public static LazyLogger of(org.slf4j.Logger logger) {
+        return LOGGERS.computeIfAbsent(logger, key -> new LazyLogger(new Slf4jBackend(logger)));
+    }
+
+    public static LazyLogger of(org.apache.logging.log4j.Logger logger) {
+        return LOGGERS.computeIfAbsent(logger, key -> new LazyLogger(new Log4j2Backend(logger)));
+    }
+
+    static int registered() {
+        return LOGGERS.size();
+    }
+
+    /**
+     * 重新读取所有 LazyLogger 底层 logger 的有效级别，配置变化时由 LogbackLevelListener 调用
+     */
+    public static void refreshLevels() {
+        for (LazyLogger lazyLogger : LOGGERS.values()) {
+            lazyLogger.threshold = lazyLogger.backend.threshold();
+        }
+    }
+
+    public boolean isTraceEnabled() {
+        return threshold <= TRACE;
+    }
+
+    public void trace(String message) {
+        if (threshold <= TRACE) {
+            backend.log(TRACE, message);
+        }
+    }
+
+    public void trace(String message, Throwable throwable) {
+        if (threshold <= TRACE) {
+            backend.log(TRACE, message, throwable);
+        }
+    }
+
+    public void trace(String format, Supplier<?> arg1) {
+        if (threshold <= TRACE) {
+            backend.log(TRACE, format, arg1.get());
+        }
+    }
+
+    public void trace(String format, Supplier<?> arg1, Supplier<?> arg2) {
+        if (threshold <= TRACE) {
+            backend.log(TRACE, format, arg1.get(), arg2.get());
+        }
+    }
+
+    public void trace(String format, Supplier<?> arg1, Supplier<?> arg2, Supplier<?> arg3) {
+        if (threshold <= TRACE) {
+            backend.log(TRACE, format, arg1.get(), arg2.get(), arg3.get());
+        }
+    }
+
+    public void trace(String format, Supplier<?> arg1, Supplier<?> arg2, Supplier<?> arg3, Supplier<?> arg4) {
+        if (threshold <= TRACE) {
+            backend.log(TRACE, format, arg1.get(), arg2.get(), arg3.get(), arg4.get());
+        }
+    }
+
+    public void trace(String format, long arg1) {
+        if (threshold <= TRACE) {
+            backend.log(TRACE, format, arg1);
+        }
+    }
+
+    public void trace(String format, long arg1, long arg2) {
+        if (threshold <= TRACE) {
+            backend.log(TRACE, format, arg1, arg2);
+        }
+    }
+
+    public void trace(String format, double arg1) {
+        if (threshold <= TRACE) {
+            backend.log(TRACE, format, arg1);
+        }
+    }
+
+    public void trace(String format, boolean arg1) {
+        if (threshold <= TRACE) {
+            backend.log(TRACE, format, arg1);
+        }
+    }
+
+    public boolean isDebugEnabled() {
+        return threshold <= DEBUG;
+    }
+
+    public void debug(String message) {
+        if (threshold <= DEBUG) {
+            backend.log(DEBUG, message);
+        }
+    }
+
+    public void debug(String message, Throwable throwable) {
+        if (threshold <= DEBUG) {
+            backend.log(DEBUG, message, throwable);
+        }
+    }
+
+    public void debug(String format, Supplier<?> arg1) {
+        if (threshold <= DEBUG) {
+            backend.log(DEBUG, format, arg1.get());
+        }
+    }
+
+    public void debug(String format, Supplier<?> arg1, Supplier<?> arg2) {
+        if (threshold <= DEBUG) {
+            backend.log(DEBUG, format, arg1.get(), arg2.get());
+        }
+    }
+
+    public void debug(String format, Supplier<?> arg1, Supplier<?> arg2, Supplier<?> arg3) {
+        if (threshold <= DEBUG) {
+            backend.log(DEBUG, format, arg1.get(), arg2.get(), arg3.get());
+        }
+    }
+
+    public void debug(String format, Supplier<?> arg1, Supplier<?> arg2, Supplier<?> arg3, Supplier<?> arg4) {
+        if (threshold <= DEBUG) {
+            backend.log(DEBUG, format, arg1.get(), arg2.get(), arg3.get(), arg4.get());
+        }
+    }
+
+    public void debug(String format, long arg1) {
+        if (threshold <= DEBUG) {
+            backend.log(DEBUG, format, arg1);
+        }
+    }
+
+    public void debug(String format, long arg1, long arg2) {
+        if (threshold <= DEBUG) {
+            backend.log(DEBUG, format, arg1, arg2);
+        }
+    }
+
+    public void debug(String format, double arg1) {
+        if (threshold <= DEBUG) {
+            backend.log(DEBUG, format, arg1);
+        }
+    }
+
+    public void debug(String format, boolean arg1) {
+        if (threshold <= DEBUG) {
+            backend.log(DEBUG, format, arg1);
+        }
+    }
+
+    public boolean isInfoEnabled() {
+        return threshold <= INFO;
+    }
+
+    public void info(String message) {
+        if (threshold <= INFO) {
+            backend.log(INFO, message);
+        }
+    }
+
+    public void info(String message, Throwable throwable) {
+        if (threshold <= INFO) {
+            backend.log(INFO, message, throwable);
+        }
+    }
+
+    public void info(String format, Supplier<?> arg1) {
+        if (threshold <= INFO) {
+            backend.log(INFO, format, arg1.get());
+        }
+    }
+
+    public void info(String format, Supplier<?> arg1, Supplier<?> arg2) {
+        if (threshold <= INFO) {
+            backend.log(INFO, format, arg1.get(), arg2.get());
+        }
+    }
+
+    public void info(String format, Supplier<?> arg1, Supplier<?> arg2, Supplier<?> arg3) {
+        if (threshold <= INFO) {
+            backend.log(INFO, format, arg1.get(), arg2.get(), arg3.get());
+        }
+    }
+
+    public void info(String format, Supplier<?> arg1, Supplier<?> arg2, Supplier<?> arg3, Supplier<?> arg4) {
+        if (threshold <= INFO) {
+            backend.log(INFO, format, arg1.get(), arg2.get(), arg3.get(), arg4.get());
+        }
+    }
+
+    public void info(String format, long arg1) {
+        if (threshold <= INFO) {
+            backend.log(INFO, format, arg1);
+        }
+    }
+
+    public void info(String format, long arg1, long arg2) {
+        if (threshold <= INFO) {
+            backend.log(INFO, format, arg1, arg2);
+        }
+    }
+
+    public void info(String format, double arg1) {
+        if (threshold <= INFO) {
+            backend.log(INFO, format, arg1);
+        }
+    }
+
+    public void info(String format, boolean arg1) {
+        if (threshold <= INFO) {
+            backend.log(INFO, format, arg1);
+        }
+    }
+
+    public boolean isWarnEnabled() {
+        return threshold <= WARN;
+    }
+
+    public void warn(String message) {
+        if (threshold <= WARN) {
+            backend.log(WARN, message);
+        }
+    }
+
+    public void warn(String message, Throwable throwable) {
+        if (threshold <= WARN) {
+            backend.log(WARN, message, throwable);
+        }
+    }
+
+    public void warn(String format, Supplier<?> arg1) {
+        if (threshold <= WARN) {
+            backend.log(WARN, format, arg1.get());
+        }
+    }
+
+    public void warn(String format, Supplier<?> arg1, Supplier<?> arg2) {
+        if (threshold <= WARN) {
+            backend.log(WARN, format, arg1.get(), arg2.get());
+        }
+    }
+
+    public void warn(String format, Supplier<?> arg1, Supplier<?> arg2, Supplier<?> arg3) {
+        if (threshold <= WARN) {
+            backend.log(WARN, format, arg1.get(), arg2.get(), arg3.get());
+        }
+    }
+
+    public void warn(String format, Supplier<?> arg1, Supplier<?> arg2, Supplier<?> arg3, Supplier<?> arg4) {
+        if (threshold <= WARN) {
+            backend.log(WARN, format, arg1.get(), arg2.get(), arg3.get(), arg4.get());
+        }
+    }
+
+    public void warn(String format, long arg1) {
+        if (threshold <= WARN) {
+            backend.log(WARN, format, arg1);
+        }
+    }
+
+    public void warn(String format, long arg1, long arg2) {
+        if (threshold <= WARN) {
+            backend.log(WARN, format, arg1, arg2);
+        }
+    }
+
+    public void warn(String format, double arg1) {
+        if (threshold <= WARN) {
+            backend.log(WARN, format, arg1);
+        }
+    }
+
+    public void warn(String format, boolean arg1) {
+        if (threshold <= WARN) {
+            backend.log(WARN, format, arg1);
+        }
+    }
+
+    public boolean isErrorEnabled() {
+        return threshold <= ERROR;
+    }
+
+    public void error(String message) {
+        if (threshold <= ERROR) {
+            backend.log(ERROR, message);
+        }
+    }
+
+    public void error(String message, Throwable throwable) {
+        if (threshold <= ERROR) {
+            backend.log(ERROR, message, throwable);
+        }
+    }
+
+    public void error(String format, Supplier<?> arg1) {
+        if (threshold <= ERROR) {
+            backend.log(ERROR, format, arg1.get());
+        }
+    }
+
+    public void error(String format, Supplier<?> arg1, Supplier<?> arg2) {
+        if (threshold <= ERROR) {
+            backend.log(ERROR, format, arg1.get(), arg2.get());
+        }
+    }
+
+    public void error(String format, Supplier<?> arg1, Supplier<?> arg2, Supplier<?> arg3) {
+        if (threshold <= ERROR) {
+            backend.log(ERROR, format, arg1.get(), arg2.get(), arg3.get());
+        }
+    }
+
+    public void error(String format, Supplier<?> arg1, Supplier<?> arg2, Supplier<?> arg3, Supplier<?> arg4) {
+        if (threshold <= ERROR) {
+            backend.log(ERROR, format, arg1.get(), arg2.get(), arg3.get(), arg4.get());
+        }
+    }
+
+    public void error(String format, long arg1) {
+        if (threshold <= ERROR) {
+            backend.log(ERROR, format, arg1);
+        }
+    }
+
+    public void error(String format, long arg1, long arg2) {
+        if (threshold <= ERROR) {
+            backend.log(ERROR, format, arg1, arg2);
+        }
+    }
+
+    public void error(String format, double arg1) {
+        if (threshold <= ERROR) {
+            backend.log(ERROR, format, arg1);
+        }
+    }
+
+    public void error(String format, boolean arg1) {
+        if (threshold <= ERROR) {
+            backend.log(ERROR, format, arg1);
+        }
+    }
+
+    interface Backend {
+        /**
+         * @return 开启的最低级别，全部关闭时返回 OFF
+         */
+        int threshold();
+
+        void log(int level, String message);
+
+        void log(int level, String format, Object... args);
+
+        void log(int level, String message, Throwable throwable);
+    }
+
+    private static final class Slf4jBackend implements Backend {
+        private static final int[] LOCATION_AWARE_LEVELS = {
+                LocationAwareLogger.TRACE_INT,
+                LocationAwareLogger.DEBUG_INT,
+                LocationAwareLogger.INFO_INT,
+                LocationAwareLogger.WARN_INT,
+                LocationAwareLogger.ERROR_INT
+        };
+
+        private final org.slf4j.Logger logger;
+        private final LocationAwareLogger locationAware;
+
+        private Slf4jBackend(org.slf4j.Logger logger) {
+            this.logger = logger;
+            this.locationAware = logger instanceof LocationAwareLogger ? (LocationAwareLogger) logger : null;
+        }
+
+        @Override
+        public int threshold() {
+            if (logger.isTraceEnabled()) return TRACE;
+            if (logger.isDebugEnabled()) return DEBUG;
+            if (logger.isInfoEnabled()) return INFO;
+            if (logger.isWarnEnabled()) return WARN;
+            if (logger.isErrorEnabled()) return ERROR;
+            return OFF;
+        }
+
+        @Override
+        public void log(int level, String message) {
+            if (locationAware != null) {
+                locationAware.log(null, FQCN, LOCATION_AWARE_LEVELS[level], message, null, null);
+                return;
+            }
+            switch (level) {
+                case TRACE: logger.trace(message); break;
+                case DEBUG: logger.debug(message); break;
+                case INFO: logger.info(message); break;
+                case WARN: logger.warn(message); break;
+                default: logger.error(message);
+            }
+        }
+
+        @Override
+        public void log(int level, String format, Object... args) {
+            if (locationAware != null) {
+                locationAware.log(null, FQCN, LOCATION_AWARE_LEVELS[level], format, args, null);
+                return;
+            }
+            switch (level) {
+                case TRACE: logger.trace(format, args); break;
+                case DEBUG: logger.debug(format, args); break;
+                case INFO: logger.info(format, args); break;
+                case WARN: logger.warn(format, args); break;
+                default: logger.error(format, args);
+            }
+        }
+
+        @Override
+        public void log(int level, String message, Throwable throwable) {
+            if (locationAware != null) {
+                locationAware.log(null, FQCN, LOCATION_AWARE_LEVELS[level], message, null, throwable);
+                return;
+            }
+            switch (level) {
+                case TRACE: logger.trace(message, throwable); break;
+                case DEBUG: logger.debug(message, throwable); break;
+                case INFO: logger.info(message, throwable); break;
+                case WARN: logger.warn(message, throwable); break;
+                default: logger.error(message, throwable);
+            }
+        }
+    }
+
+    private static final class Log4j2Backend implements Backend {
+        private static final org.apache.logging.log4j.Level[] LEVELS = {
+                org.apache.logging.log4j.Level.TRACE,
+                org.apache.logging.log4j.Level.DEBUG,
+                org.apache.logging.log4j.Level.INFO,
+                org.apache.logging.log4j.Level.WARN,
+                org.apache.logging.log4j.Level.ERROR
+        };
+
+        private final org.apache.logging.log4j.Logger logger;
+        private final ExtendedLogger extended;
+
+        private Log4j2Backend(org.apache.logging.log4j.Logger logger) {
+            this.logger = logger;
+            this.extended = logger instanceof ExtendedLogger ? (ExtendedLogger) logger : null;
+        }
+
+        @Override
+        public int threshold() {
+            for (int level = TRACE; level <= ERROR; level++) {
+                if (logger.isEnabled(LEVELS[level])) {
+                    return level;
+                }
+            }
+            return OFF;
+        }
+
+        @Override
+        public void log(int level, String message) {
+            if (extended != null) {
+                extended.logIfEnabled(FQCN, LEVELS[level], null, message);
+            } else {
+                logger.log(LEVELS[level], message);
+            }
+        }
+
+        @Override
+        public void log(int level, String format, Object... args) {
+            if (extended != null) {
+                extended.logIfEnabled(FQCN, LEVELS[level], null, format, args);
+            } else {
+                logger.log(LEVELS[level], format, args);
+            }
+        }
+
+        @Override
+        public void log(int level, String message, Throwable throwable) {
+            if (extended != null) {
+                extended.logIfEnabled(FQCN, LEVELS[level], null, message, throwable);
+            } else {
+                logger.log(LEVELS[level], message, throwable);
+            }
+        }
+    }
+}
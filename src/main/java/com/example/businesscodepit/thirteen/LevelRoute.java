@@ -0,0 +1,112 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.Level;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     LevelRoutingAppender 的一个输出目标：哪些级别写到哪个文件
+ *     levels 是逗号分隔的级别列表，比如 INFO,WARN；也可以用 threshold 表示该级别及以上
+ *     channel 和 batch 只由 LevelRoutingAppender 的后台写线程访问
+ * @author yaoyong
+ **/
+public class LevelRoute {
+    private static final int BATCH_CAPACITY = 64 * 1024;
+
+    private String file;
+    private String levels;
+    private String threshold;
+
+    private FileChannel channel;
+    private ByteBuffer batch;
+    private final AtomicLong written = new AtomicLong();
+
+    boolean accepts(Level level) {
+        if (threshold != null && level.isGreaterOrEqual(Level.toLevel(threshold.trim()))) {
+            return true;
+        }
+        if (levels != null) {
+            for (String each : levels.split(",")) {
+                if (Level.toLevel(each.trim(), null) == level) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    void open() throws IOException {
+        File target = new File(file);
+        File parent = target.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create parent directories for [" + target.getAbsolutePath() + "]");
+        }
+        channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        batch = ByteBuffer.allocateDirect(BATCH_CAPACITY);
+    }
+
+    /**
+     * 追加到批量缓冲区，放不下时先把缓冲区写入文件；单条超过缓冲区容量的日志直接写
+     */
+    void append(ByteBuffer bytes) throws IOException {
+        if (batch.remaining() < bytes.remaining()) {
+            flush();
+            if (batch.remaining() < bytes.remaining()) {
+                write(bytes);
+                return;
+            }
+        }
+        batch.put(bytes);
+    }
+
+    void flush() throws IOException {
+        if (batch.position() == 0) {
+            return;
+        }
+        batch.flip();
+        write(batch);
+        batch.clear();
+    }
+
+    private void write(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            written.addAndGet(channel.write(bytes));
+        }
+    }
+
+    void close() throws IOException {
+        if (channel != null) {
+            flush();
+            channel.close();
+        }
+    }
+
+    long getWrittenBytes() {
+        return written.get();
+    }
+
+    String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public void setLevels(String levels) {
+        this.levels = levels;
+    }
+
+    public void setThreshold(String threshold) {
+        this.threshold = threshold;
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+import ch.qos.logback.core.joran.spi.DefaultClass;
+import com.example.businesscodepit.util.MpscRingBuffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     按级别把日志分发到多个文件的 Appender，代替"每个文件一个 FileAppender + LevelFilter/ThresholdFilter"的写法
+ *     原来每条日志要经过每个 Appender 各自的过滤器链和编码器，这里：
+ *     1.启动时按级别预先算好每个级别对应的 LevelRoute 数组，记录日志时只根据级别取一次数组
+ *     2.不需要输出时直接返回；需要输出时只编码一次，同一份字节写到所有目标
+ *     3.编码后的字节放入有界的 MpscRingBuffer，由一个后台线程写入所有目标文件，每个目标有自己的批量缓冲区；
+ *       队列满时阻塞等待（计入 blocked），不丢日志
+ *     stop 时先拒绝新的日志，阻塞中的调用方放弃等待，两者都计入 dropped；等正在 append 的调用方退出后，
+ *     再把后台线程退出之后才入队的日志写完，最后关闭文件
+ *     配置方式：
+ *         <appender name="LEVEL_ROUTING" class="com.example.businesscodepit.thirteen.LevelRoutingAppender">
+ *             <route><levels>INFO,WARN</levels><file>info_warn.log</file></route>
+ *             <route><threshold>ERROR</threshold><file>error.log</file></route>
+ *             <encoder .../>
+ *         </appender>
+ * @author yaoyong
+ **/
+public class LevelRoutingAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+    private static final Level[] LEVELS = {Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR};
+    private static final int DEFAULT_QUEUE_SIZE = 8192;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private Encoder<ILoggingEvent> encoder;
+    private final List<LevelRoute> routes = new ArrayList<>();
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+
+    private final LevelRoute[][] routesByLevel = new LevelRoute[LEVELS.length][];
+    private MpscRingBuffer<Entry> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder unrouted = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicInteger appending = new AtomicInteger();
+
+    @Override
+    public void start() {
+        if (encoder == null) {
+            addError("No encoder set for the appender named [" + name + "].");
+            return;
+        }
+        if (routes.isEmpty()) {
+            addError("No route set for the appender named [" + name + "].");
+            return;
+        }
+        for (int i = 0; i < LEVELS.length; i++) {
+            List<LevelRoute> matched = new ArrayList<>();
+            for (LevelRoute route : routes) {
+                if (route.accepts(LEVELS[i])) {
+                    matched.add(route);
+                }
+            }
+            routesByLevel[i] = matched.toArray(new LevelRoute[0]);
+        }
+        try {
+            for (LevelRoute route : routes) {
+                route.open();
+            }
+        } catch (IOException e) {
+            addError("Failed to open file for the appender named [" + name + "].", e);
+            return;
+        }
+        queue = new MpscRingBuffer<>(queueSize);
+        running = true;
+        writer = new Thread(this::writeLoop, "logback-level-routing-" + name);
+        writer.setDaemon(true);
+        writer.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        while (appending.get() > 0) {
+            Thread.yield();
+        }
+        if (writer.isAlive()) {
+            //后台线程在超时时间内没有退出，不能再并发消费，剩下的只能计为丢弃
+            dropped.add(queue.size());
+        } else {
+            //后台线程最后一次检查之后才入队的日志
+            Entry entry;
+            while ((entry = queue.poll()) != null) {
+                write(entry);
+            }
+            flushAll();
+        }
+        for (LevelRoute route : routes) {
+            try {
+                route.close();
+            } catch (IOException e) {
+                addError("Failed to close [" + route.getFile() + "] for the appender named [" + name + "].", e);
+            }
+        }
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        appending.incrementAndGet();
+        try {
+            if (!running) {
+                //stop 已经开始，入队后可能没有消费者了
+                appended.increment();
+                dropped.increment();
+                return;
+            }
+            route(event);
+        } finally {
+            appending.decrementAndGet();
+        }
+    }
+
+    private void route(ILoggingEvent event) {
+        LevelRoute[] targets = routesByLevel[levelIndex(event.getLevel())];
+        if (targets.length == 0) {
+            unrouted.increment();
+            return;
+        }
+        Entry entry = new Entry(targets, encode(event));
+        appended.increment();
+        if (queue.offer(entry)) {
+            return;
+        }
+        blocked.increment();
+        while (!queue.offer(entry)) {
+            if (!running) {
+                //已经停止，没有消费者了，只能丢弃
+                dropped.increment();
+                return;
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+    }
+
+    private byte[] encode(ILoggingEvent event) {
+        //在调用线程上编码，和同步的 FileAppender 一样能拿到调用方数据
+        if (encoder instanceof GarbageFreePatternEncoder) {
+            ByteBuffer bytes = ((GarbageFreePatternEncoder) encoder).encodeToBuffer(event);
+            byte[] copy = new byte[bytes.remaining()];
+            bytes.get(copy);
+            return copy;
+        }
+        return encoder.encode(event);
+    }
+
+    private static int levelIndex(Level level) {
+        switch (level.toInt()) {
+            case Level.TRACE_INT:
+                return 0;
+            case Level.DEBUG_INT:
+                return 1;
+            case Level.INFO_INT:
+                return 2;
+            case Level.WARN_INT:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Entry entry = queue.poll();
+            if (entry == null) {
+                flushAll();
+                if (!running && queue.size() == 0) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            write(entry);
+        }
+    }
+
+    private void write(Entry entry) {
+        ByteBuffer bytes = ByteBuffer.wrap(entry.bytes);
+        for (LevelRoute route : entry.routes) {
+            try {
+                bytes.rewind();
+                route.append(bytes);
+            } catch (IOException e) {
+                addError("Failed to write [" + route.getFile() + "] for the appender named [" + name + "].", e);
+            }
+        }
+    }
+
+    private void flushAll() {
+        for (LevelRoute route : routes) {
+            try {
+                route.flush();
+            } catch (IOException e) {
+                addError("Failed to write [" + route.getFile() + "] for the appender named [" + name + "].", e);
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("appended", appended.sum());
+        result.put("unrouted", unrouted.sum());
+        result.put("blocked", blocked.sum());
+        result.put("dropped", dropped.sum());
+        result.put("queued", queue == null ? 0 : queue.size());
+        Map<String, Long> writtenBytes = new LinkedHashMap<>();
+        for (LevelRoute route : routes) {
+            writtenBytes.put(route.getFile(), route.getWrittenBytes());
+        }
+        result.put("writtenBytes", writtenBytes);
+        return result;
+    }
+
+    public void setEncoder(Encoder<ILoggingEvent> encoder) {
+        this.encoder = encoder;
+    }
+
+    @DefaultClass(LevelRoute.class)
+    public void addRoute(LevelRoute route) {
+        routes.add(route);
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    private static final class Entry {
+        private final LevelRoute[] routes;
+        private final byte[] bytes;
+
+        private Entry(LevelRoute[] routes, byte[] bytes) {
+            this.routes = routes;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     运行时查看和修改 logger 级别以及采样率，不用再改 logback 的 xml 然后重启
+ *     1.logger 名称通过请求参数传递，避免路径中的 "." 被 Spring 当成扩展名截掉
+ *     2.level 传空表示清除该 logger 自己的级别，继承父 logger；级别变化会通过 LogbackLevelListener 刷新 LazyLogger 的缓存
+ *     3.采样由 SamplingTurboFilter 执行，LoggerContext 被重置时 TurboFilter 会被清掉，所以每次操作前都重新确认它已安装
+ *     排查问题时可以把某个包调到 DEBUG 同时设置 DEBUG 每 100 条输出 1 条，既能看到细节又不会把磁盘写满
+ * @author yaoyong
+ **/
+@Slf4j
+@RestController
+@RequestMapping("logging")
+public class LogLevelController {
+
+    /**
+     * 不传 name 时返回所有显式设置了级别的 logger，传 name 时返回该 logger 自己的级别和有效级别
+     */
+    @GetMapping("levels")
+    public Map<String, Object> levels(@RequestParam(name = "name", required = false) String name) {
+        LoggerContext loggerContext = loggerContext();
+        Map<String, Object> result = new TreeMap<>();
+        if (StringUtils.hasText(name)) {
+            result.put(name, describe(loggerContext.getLogger(name)));
+            return result;
+        }
+        for (Logger logger : loggerContext.getLoggerList()) {
+            if (logger.getLevel() != null) {
+                result.put(logger.getName(), describe(logger));
+            }
+        }
+        return result;
+    }
+
+    @PostMapping("levels")
+    public Map<String, Object> setLevel(@RequestParam("name") String name,
+                                        @RequestParam(name = "level", required = false) String level) {
+        Logger logger = loggerContext().getLogger(name);
+        Level newLevel = parseLevel(level, true);
+        log.info("change level of logger {} from {} to {}", name, logger.getLevel(), newLevel);
+        logger.setLevel(newLevel);
+        return describe(logger);
+    }
+
+    @GetMapping("sampling")
+    public Map<String, Map<String, Object>> sampling() {
+        return SamplingTurboFilter.install(loggerContext()).rules();
+    }
+
+    /**
+     * name 及其子 logger 的 level 级别日志每 rate 条输出 1 条，rate 小于等于 1 表示取消采样
+     */
+    @PostMapping("sampling")
+    public Map<String, Map<String, Object>> setSampling(@RequestParam("name") String name,
+                                                        @RequestParam("level") String level,
+                                                        @RequestParam("rate") int rate) {
+        SamplingTurboFilter filter = SamplingTurboFilter.install(loggerContext());
+        log.info("change sampling of logger {} level {} to 1/{}", name, level, rate);
+        filter.setRate(name, parseLevel(level, false), rate);
+        return filter.rules();
+    }
+
+    private static Map<String, Object> describe(Logger logger) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("level", logger.getLevel() == null ? null : logger.getLevel().levelStr);
+        result.put("effectiveLevel", logger.getEffectiveLevel().levelStr);
+        return result;
+    }
+
+    private static Level parseLevel(String level, boolean allowEmpty) {
+        if (!StringUtils.hasText(level)) {
+            if (allowEmpty) {
+                return null;
+            }
+            throw new IllegalArgumentException("level is required");
+        }
+        Level parsed = Level.toLevel(level, null);
+        if (parsed == null) {
+            throw new IllegalArgumentException("unknown level: " + level);
+        }
+        return parsed;
+    }
+
+    private static LoggerContext loggerContext() {
+        ILoggerFactory loggerFactory = LoggerFactory.getILoggerFactory();
+        if (!(loggerFactory instanceof LoggerContext)) {
+            throw new IllegalStateException("logging backend is not logback: " + loggerFactory.getClass().getName());
+        }
+        return (LoggerContext) loggerFactory;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggerContextListener;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     logback 配置重新加载、启动、停止或者某个 logger 的级别被修改时刷新 LazyLogger 的级别缓存
+ *     isResetResistant 返回 true，Spring Boot 启动时重置 LoggerContext 后监听仍然有效
+ * @author yaoyong
+ **/
+public class LogbackLevelListener implements LoggerContextListener {
+    static void install() {
+        ILoggerFactory loggerFactory = LoggerFactory.getILoggerFactory();
+        if (!(loggerFactory instanceof LoggerContext)) {
+            return;
+        }
+        LoggerContext loggerContext = (LoggerContext) loggerFactory;
+        synchronized (LogbackLevelListener.class) {
+            for (LoggerContextListener listener : loggerContext.getCopyOfListenerList()) {
+                if (listener instanceof LogbackLevelListener) {
+                    return;
+                }
+            }
+            loggerContext.addListener(new LogbackLevelListener());
+        }
+    }
+
+    @Override
+    public boolean isResetResistant() {
+        return true;
+    }
+
+    @Override
+    public void onStart(LoggerContext context) {
+        LazyLogger.refreshLevels();
+    }
+
+    @Override
+    public void onReset(LoggerContext context) {
+        LazyLogger.refreshLevels();
+    }
+
+    @Override
+    public void onStop(LoggerContext context) {
+        LazyLogger.refreshLevels();
+    }
+
+    @Override
+    public void onLevelChange(Logger logger, Level level) {
+        LazyLogger.refreshLevels();
+    }
+}
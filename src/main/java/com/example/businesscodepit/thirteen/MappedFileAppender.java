@@ -0,0 +1,310 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     基于内存映射的文件 Appender，代替每条日志都加锁写 OutputStream 并 flush 的 FileAppender
+ *     1.文件按 segmentSize 切分成段，用到哪一段才映射哪一段
+ *     2.每条日志编码后用 getAndAdd 在全局写位置上占一段空间，然后直接拷贝到映射内存中，写入过程不加锁；
+ *       跨段的日志拆成两次拷贝
+ *     3.一段写满后交给后台线程 force 并丢弃映射（Java 8 没有公开的 unmap，由 GC 回收）
+ *     4.group commit：后台线程每 flushIntervalMillis 或者未刷盘字节数超过 flushBytes 时统一 force 一次，
+ *       而不是每条日志都 flush
+ *     5.映射会把文件扩展到整段，stop 时把文件截断到实际写入的长度；进程异常退出时文件尾部会留下一段 \0
+ *     6.stop 先设置 closed 拒绝新的写入，等正在拷贝的调用方全部退出后才 force、截断并关闭文件，
+ *       否则截断后再访问映射内存会触发 SIGBUS 导致 JVM 崩溃；stop 之后到达的日志计入 dropped
+ *     7.位置已经占好但这一段映射失败时，改用 FileChannel 按位置写入同一段区域，不在文件中间留下 \0 空洞；
+ *       这样写入的字节不计入段的已写字节数，这一段之后即使映射成功也不会提前退役，只是要到 stop 时才随其它段一起 force
+ * @author yaoyong
+ **/
+public class MappedFileAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+    private static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+    private static final long DEFAULT_FLUSH_BYTES = 8L * 1024 * 1024;
+
+    private Encoder<ILoggingEvent> encoder;
+    private String file;
+    private long segmentSize = DEFAULT_SEGMENT_SIZE;
+    private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+    private long flushBytes = DEFAULT_FLUSH_BYTES;
+
+    private FileChannel channel;
+    private long initialSize;
+    private final AtomicLong position = new AtomicLong();
+    private final ConcurrentHashMap<Long, Segment> segments = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Segment> retired = new ConcurrentLinkedQueue<>();
+    private final AtomicLong unflushed = new AtomicLong();
+    private Thread flusher;
+    private volatile boolean running;
+    private volatile boolean closed;
+    private final AtomicInteger writers = new AtomicInteger();
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder channelWrites = new LongAdder();
+    private final AtomicLong mapped = new AtomicLong();
+    private final AtomicLong forced = new AtomicLong();
+
+    @Override
+    public void start() {
+        if (encoder == null) {
+            addError("No encoder set for the appender named [" + name + "].");
+            return;
+        }
+        if (file == null) {
+            addError("No file set for the appender named [" + name + "].");
+            return;
+        }
+        if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE) {
+            addError("segmentSize must be between 1 and " + Integer.MAX_VALUE + " for the appender named [" + name + "].");
+            return;
+        }
+        try {
+            File target = new File(file);
+            File parent = target.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                addError("Failed to create parent directories for [" + target.getAbsolutePath() + "]");
+                return;
+            }
+            channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            //和 FileAppender 的 append 模式一样，从已有内容的末尾开始写
+            initialSize = channel.size();
+            position.set(initialSize);
+        } catch (IOException e) {
+            addError("Failed to open file for the appender named [" + name + "].", e);
+            return;
+        }
+        closed = false;
+        running = true;
+        flusher = new Thread(this::flushLoop, "logback-mapped-flusher-" + name);
+        flusher.setDaemon(true);
+        flusher.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        closed = true;
+        //截断和丢弃映射之前必须等正在拷贝的调用方都退出
+        while (writers.get() > 0) {
+            Thread.yield();
+        }
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        forceAll();
+        segments.clear();
+        try {
+            channel.truncate(position.get());
+            channel.close();
+        } catch (IOException e) {
+            addError("Failed to close file for the appender named [" + name + "].", e);
+        }
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        writers.incrementAndGet();
+        try {
+            if (closed) {
+                dropped.increment();
+                return;
+            }
+            write(event);
+        } finally {
+            writers.decrementAndGet();
+        }
+    }
+
+    private void write(ILoggingEvent event) {
+        //GarbageFreePatternEncoder 编码到线程复用的缓冲区，不产生中间的 byte[]
+        ByteBuffer source = encoder instanceof GarbageFreePatternEncoder
+                ? ((GarbageFreePatternEncoder) encoder).encodeToBuffer(event)
+                : wrap(encoder.encode(event));
+        int total = source.remaining();
+        if (total == 0) {
+            return;
+        }
+        long start = position.getAndAdd(total);
+        int offset = 0;
+        while (offset < total) {
+            long filePosition = start + offset;
+            Segment segment = segment(filePosition / segmentSize);
+            int segmentOffset = (int) (filePosition % segmentSize);
+            int length = (int) Math.min(total - offset, segmentSize - segmentOffset);
+            source.limit(source.position() + length);
+            if (segment == null) {
+                if (!writeThroughChannel(source, filePosition)) {
+                    dropped.increment();
+                    return;
+                }
+                offset += length;
+                continue;
+            }
+            ByteBuffer target = segment.buffer.duplicate();
+            target.position(segmentOffset);
+            target.put(source);
+            offset += length;
+            //所有占用这一段的写入都完成了，段才算写满，可以退役
+            if (segment.written.addAndGet(length) == segment.capacity) {
+                segments.remove(segment.index, segment);
+                retired.offer(segment);
+                LockSupport.unpark(flusher);
+            }
+        }
+        appended.increment();
+        if (unflushed.addAndGet(total) >= flushBytes) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    /**
+     * 映射失败时把占好的这段位置直接写入文件，返回是否写成功
+     */
+    private boolean writeThroughChannel(ByteBuffer source, long filePosition) {
+        try {
+            long written = filePosition;
+            while (source.hasRemaining()) {
+                written += channel.write(source, written);
+            }
+            channelWrites.increment();
+            return true;
+        } catch (IOException e) {
+            addError("Failed to write at " + filePosition + " for the appender named [" + name + "].", e);
+            return false;
+        }
+    }
+
+    private static ByteBuffer wrap(byte[] bytes) {
+        return bytes == null ? ByteBuffer.allocate(0) : ByteBuffer.wrap(bytes);
+    }
+
+    private Segment segment(long index) {
+        Segment segment = segments.get(index);
+        if (segment != null) {
+            return segment;
+        }
+        synchronized (this) {
+            segment = segments.get(index);
+            if (segment == null) {
+                try {
+                    long begin = index * segmentSize;
+                    MappedByteBuffer buffer = map(begin);
+                    //追加到已有文件时，第一段中已有内容的部分不会再被写入，先算作已写
+                    long existing = Math.max(0, Math.min(segmentSize, initialSize - begin));
+                    segment = new Segment(index, buffer, segmentSize, existing);
+                    segments.put(index, segment);
+                    mapped.incrementAndGet();
+                } catch (IOException e) {
+                    addError("Failed to map segment " + index + " for the appender named [" + name + "].", e);
+                    return null;
+                }
+            }
+            return segment;
+        }
+    }
+
+    MappedByteBuffer map(long begin) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, begin, segmentSize);
+    }
+
+    private void flushLoop() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (running) {
+            LockSupport.parkNanos(intervalNanos);
+            forceAll();
+        }
+    }
+
+    private void forceAll() {
+        Segment segment;
+        while ((segment = retired.poll()) != null) {
+            segment.buffer.force();
+            forced.incrementAndGet();
+        }
+        if (unflushed.getAndSet(0) == 0) {
+            return;
+        }
+        for (Segment active : segments.values()) {
+            active.buffer.force();
+        }
+        forced.incrementAndGet();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("appended", appended.sum());
+        result.put("dropped", dropped.sum());
+        result.put("channelWrites", channelWrites.sum());
+        result.put("position", position.get());
+        result.put("segmentSize", segmentSize);
+        result.put("mappedSegments", mapped.get());
+        result.put("activeSegments", segments.size());
+        result.put("forces", forced.get());
+        return result;
+    }
+
+    public void setEncoder(Encoder<ILoggingEvent> encoder) {
+        this.encoder = encoder;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public void setSegmentSize(long segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public void setFlushBytes(long flushBytes) {
+        this.flushBytes = flushBytes;
+    }
+
+    private static final class Segment {
+        private final long index;
+        private final MappedByteBuffer buffer;
+        private final long capacity;
+        private final AtomicLong written;
+
+        private Segment(long index, MappedByteBuffer buffer, long capacity, long existing) {
+            this.index = index;
+            this.buffer = buffer;
+            this.capacity = capacity;
+            this.written = new AtomicLong(existing);
+        }
+    }
+}
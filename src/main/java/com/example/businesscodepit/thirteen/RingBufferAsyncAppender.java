@@ -0,0 +1,422 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     代替 AsyncAppender + FileAppender 的异步文件日志，针对 notes 中 AsyncAppender 的三个问题：
+ *     1.撑爆内存：队列是启动时预先分配好的 bufferSize 个槽位组成的环，槽位循环复用，
+ *       消费后立刻清空对日志事件的引用，占用的内存有明确上限
+ *     2.丢失日志：队列满时的处理方式由 policy 明确指定，并且每一条被丢弃、阻塞、落盘的日志都有精确计数
+ *        BLOCK            阻塞等待空位，不丢日志
+ *        DROP_BELOW_WARN  丢弃 WARN 以下的日志，WARN 和 ERROR 仍然阻塞等待，保证不会丢失
+ *        SPILL_TO_DISK    在调用线程上直接编码并写入 spillFile，不阻塞也不丢日志，但两个文件之间的顺序不保证
+ *     3.阻塞：写文件的后台线程每次最多取 batchSize 条，编码到同一个缓冲区后一次性写入 FileChannel，
+ *       不再像 FileAppender 那样每条日志都加锁、写流、flush
+ *       批量缓冲区最多增长到 maxBatchBytes，放不下时先把已经编码的部分写出去；单条日志比上限还大时临时分配一个刚好放得下的缓冲区，
+ *       写完后换回默认大小，不会因为偶尔一条超大日志让缓冲区一直占着那么多内存
+ *     stop 时先拒绝新的日志，等正在 append 的调用方退出，再把后台线程退出后才入队的日志写完，最后关闭文件，
+ *     停止过程中来不及入队的日志都计入 dropped
+ *     入队使用 Vyukov 的有界队列算法：每个槽位有自己的序号，生产者 CAS 抢占写位置，单个消费者按序号读取
+ *     和 AsyncAppender 一样，默认不收集调用方数据，需要时配置 includeCallerData，调用方数据通过 CallerDataCache 获取；
+ *     不收集时只使用 CallerDataCache 中已确认的结果，避免后台线程为 %line 在自己的线程上生成异常栈
+ * @author yaoyong
+ **/
+public class RingBufferAsyncAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+    public enum Policy {
+        BLOCK, DROP_BELOW_WARN, SPILL_TO_DISK
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    private static final int DEFAULT_BATCH_BYTES = 64 * 1024;
+    private static final int DEFAULT_MAX_BATCH_BYTES = 1024 * 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private Encoder<ILoggingEvent> encoder;
+    private String file;
+    private String spillFile;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+    private Policy policy = Policy.BLOCK;
+    private boolean includeCallerData = false;
+
+    private Slot[] slots;
+    private int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private FileChannel channel;
+    private FileChannel spillChannel;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile boolean writerParked;
+    private final AtomicInteger appending = new AtomicInteger();
+    //只由消费者使用：运行时是后台线程，stop 时后台线程退出之后由调用 stop 的线程使用
+    private ByteBuffer batch;
+    private int batchEvents;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private volatile long written;
+    private volatile long batches;
+
+    @Override
+    public void start() {
+        if (encoder == null) {
+            addError("No encoder set for the appender named [" + name + "].");
+            return;
+        }
+        if (file == null) {
+            addError("No file set for the appender named [" + name + "].");
+            return;
+        }
+        int capacity = Integer.highestOneBit(Math.max(1, bufferSize - 1)) << 1;
+        slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot(i);
+        }
+        mask = capacity - 1;
+        try {
+            channel = open(file);
+            if (policy == Policy.SPILL_TO_DISK) {
+                spillChannel = open(spillFile == null ? file + ".spill" : spillFile);
+            }
+        } catch (IOException e) {
+            addError("Failed to open file for the appender named [" + name + "].", e);
+            return;
+        }
+        batch = ByteBuffer.allocate(Math.min(DEFAULT_BATCH_BYTES, maxBatchBytes));
+        running = true;
+        writer = new Thread(this::drainLoop, "logback-ring-writer-" + name);
+        writer.setDaemon(true);
+        writer.start();
+        super.start();
+    }
+
+    private static FileChannel open(String path) throws IOException {
+        return FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        //阻塞中的生产者看到 running 为 false 会放弃并计数，这里等它们和正在入队的调用方都退出
+        while (appending.get() > 0) {
+            Thread.yield();
+        }
+        if (writer.isAlive()) {
+            //后台线程在超时时间内没有退出，不能再并发消费，剩下的只能计为丢弃
+            dropped.add(tail.get() - head);
+        } else {
+            //后台线程最后一次检查之后才入队的日志
+            drain(Integer.MAX_VALUE);
+        }
+        close(channel);
+        close(spillChannel);
+    }
+
+    private void close(FileChannel fileChannel) {
+        if (fileChannel == null) {
+            return;
+        }
+        try {
+            fileChannel.force(false);
+            fileChannel.close();
+        } catch (IOException e) {
+            addError("Failed to close file for the appender named [" + name + "].", e);
+        }
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        appending.incrementAndGet();
+        try {
+            if (!running) {
+                //stop 已经开始，入队后可能没有消费者了
+                appended.increment();
+                dropped.increment();
+                return;
+            }
+            enqueue(event);
+        } finally {
+            appending.decrementAndGet();
+        }
+    }
+
+    private void enqueue(ILoggingEvent event) {
+        //格式化消息、拷贝 MDC 等必须在调用线程上完成
+        event.prepareForDeferredProcessing();
+        if (event instanceof LoggingEvent) {
+            ((LoggingEvent) event).setCallerData(includeCallerData
+                    ? CallerDataCache.resolve(event) : CallerDataCache.cachedOrEmpty(event));
+        }
+        appended.increment();
+        if (offer(event)) {
+            return;
+        }
+        switch (policy) {
+            case SPILL_TO_DISK:
+                spill(event);
+                return;
+            case DROP_BELOW_WARN:
+                if (!event.getLevel().isGreaterOrEqual(Level.WARN)) {
+                    dropped.increment();
+                    return;
+                }
+                putUninterruptibly(event);
+                return;
+            default:
+                putUninterruptibly(event);
+        }
+    }
+
+    private boolean offer(ILoggingEvent event) {
+        while (true) {
+            long position = tail.get();
+            Slot slot = slots[(int) (position & mask)];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slot.event = event;
+                    slot.sequence = position + 1;
+                    if (writerParked) {
+                        LockSupport.unpark(writer);
+                    }
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+        }
+    }
+
+    private void putUninterruptibly(ILoggingEvent event) {
+        blocked.increment();
+        long begin = System.nanoTime();
+        while (!offer(event)) {
+            if (!running) {
+                //已经停止，没有消费者了，只能丢弃
+                dropped.increment();
+                break;
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        blockedNanos.add(System.nanoTime() - begin);
+    }
+
+    private void spill(ILoggingEvent event) {
+        ByteBuffer bytes = ByteBuffer.wrap(encoder.encode(event));
+        try {
+            synchronized (spillChannel) {
+                while (bytes.hasRemaining()) {
+                    spillChannel.write(bytes);
+                }
+            }
+            spilled.increment();
+        } catch (IOException e) {
+            dropped.increment();
+            addError("Failed to spill event for the appender named [" + name + "].", e);
+        }
+    }
+
+    private void drainLoop() {
+        while (true) {
+            if (drain(batchSize) > 0) {
+                continue;
+            }
+            if (!running) {
+                return;
+            }
+            writerParked = true;
+            //再检查一次，避免生产者在设置 writerParked 之前入队而没有唤醒
+            if (slots[(int) (head & mask)].sequence != head + 1) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            writerParked = false;
+        }
+    }
+
+    /**
+     * 最多取 limit 条日志编码后写入文件，返回取到的条数
+     */
+    private int drain(int limit) {
+        int count = 0;
+        Slot slot;
+        while (count < limit && (slot = slots[(int) (head & mask)]).sequence == head + 1) {
+            ILoggingEvent event = slot.event;
+            slot.event = null;
+            slot.sequence = head + mask + 1;
+            head++;
+            count++;
+            try {
+                encode(event);
+            } catch (RuntimeException e) {
+                //转换器、自定义 layout 抛出的异常不能让后台线程退出，否则环形队列再也不会被消费，BLOCK 策略下所有记录日志的线程都会卡住
+                dropped.increment();
+                addError("Failed to encode event for the appender named [" + name + "].", e);
+            }
+        }
+        flushBatch();
+        return count;
+    }
+
+    private void encode(ILoggingEvent event) {
+        //GarbageFreePatternEncoder 直接编码进批量缓冲区，不产生中间的 byte[]
+        if (encoder instanceof GarbageFreePatternEncoder) {
+            GarbageFreePatternEncoder garbageFree = (GarbageFreePatternEncoder) encoder;
+            ByteBuffer bytes = garbageFree.encodeToBuffer(event);
+            ensureRemaining(bytes.remaining());
+            batch.put(bytes);
+        } else {
+            byte[] bytes = encoder.encode(event);
+            ensureRemaining(bytes.length);
+            batch.put(bytes);
+        }
+        batchEvents++;
+    }
+
+    private void ensureRemaining(int length) {
+        if (batch.remaining() >= length) {
+            return;
+        }
+        //增长后会超过上限时先把已经编码的部分写出去，腾出整个缓冲区
+        if (batch.position() + length > maxBatchBytes && batch.position() > 0) {
+            flushBatch();
+            if (batch.remaining() >= length) {
+                return;
+            }
+        }
+        int capacity = Math.max(batch.capacity() * 2, batch.position() + length);
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(Math.min(capacity, maxBatchBytes), batch.position() + length));
+        batch.flip();
+        batch = larger.put(batch);
+    }
+
+    private void flushBatch() {
+        if (batchEvents == 0) {
+            return;
+        }
+        batch.flip();
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+        } catch (IOException e) {
+            addError("Failed to write file for the appender named [" + name + "].", e);
+        }
+        written += batchEvents;
+        batches++;
+        batchEvents = 0;
+        //超过上限的缓冲区只为一条超大的日志临时分配，写完就换回默认大小
+        batch = batch.capacity() > maxBatchBytes ? ByteBuffer.allocate(Math.min(DEFAULT_BATCH_BYTES, maxBatchBytes)) : batch;
+        batch.clear();
+    }
+
+    int batchCapacity() {
+        return batch.capacity();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("policy", policy);
+        result.put("bufferSize", slots == null ? 0 : slots.length);
+        result.put("appended", appended.sum());
+        result.put("written", written);
+        result.put("batches", batches);
+        result.put("queued", tail.get() - head);
+        result.put("dropped", dropped.sum());
+        result.put("blocked", blocked.sum());
+        result.put("blockedMillis", TimeUnit.NANOSECONDS.toMillis(blockedNanos.sum()));
+        result.put("spilled", spilled.sum());
+        return result;
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+
+    public long getSpilledCount() {
+        return spilled.sum();
+    }
+
+    public void setEncoder(Encoder<ILoggingEvent> encoder) {
+        this.encoder = encoder;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public void setSpillFile(String spillFile) {
+        this.spillFile = spillFile;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setMaxBatchBytes(int maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    public void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
+
+    public void setIncludeCallerData(boolean includeCallerData) {
+        this.includeCallerData = includeCallerData;
+    }
+
+    private static final class Slot {
+        private volatile long sequence;
+        private ILoggingEvent event;
+
+        private Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
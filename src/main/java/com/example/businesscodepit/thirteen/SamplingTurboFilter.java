@@ -0,0 +1,196 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     按 logger 和级别采样的 TurboFilter，比如某个包的 INFO 日志每 N 条只输出 1 条
+ *     TurboFilter 在 logger 判断级别之前对每次日志调用执行，所以要足够便宜：
+ *     1.没有任何采样规则时只读一次 volatile 变量
+ *     2.logger 名称到规则的解析结果（向上查找最近的祖先 logger 的规则）按 logger 名称缓存。
+ *       缓存和规则放在同一个不可变的 State 里，规则变化时整体换成新的 State，
+ *       和 setRate 并发的解析即使晚一步写入，写的也是已经被丢弃的旧缓存，不会把过期的规则放回来
+ *     3.计数器是线程本地的 int 数组，按 规则序号 * 级别数 + 级别 下标访问，没有任何竞争；
+ *       因此 1/N 是每个线程各自的比例，整体比例近似为 1/N
+ *     isXxxEnabled 这样的级别查询（没有消息也没有参数）不计数，直接放行，采样只发生在真正记录日志时
+ * @author yaoyong
+ **/
+public class SamplingTurboFilter extends TurboFilter {
+    private static final int LEVEL_COUNT = 5;
+    private static final Rule NONE = new Rule(-1, new int[LEVEL_COUNT]);
+    private volatile State state = new State(Collections.emptyMap());
+    private volatile boolean enabled;
+    private final AtomicInteger slots = new AtomicInteger();
+    private final ThreadLocal<int[]> counters = ThreadLocal.withInitial(() -> new int[LEVEL_COUNT * 16]);
+
+    /**
+     * 返回 LoggerContext 中已有的 SamplingTurboFilter，没有时创建一个并加入
+     */
+    public static synchronized SamplingTurboFilter install(LoggerContext loggerContext) {
+        for (TurboFilter turboFilter : loggerContext.getTurboFilterList()) {
+            if (turboFilter instanceof SamplingTurboFilter) {
+                return (SamplingTurboFilter) turboFilter;
+            }
+        }
+        SamplingTurboFilter filter = new SamplingTurboFilter();
+        filter.setName("sampling");
+        filter.setContext(loggerContext);
+        filter.start();
+        loggerContext.addTurboFilter(filter);
+        return filter;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!enabled || logger == null || level == null || (format == null && params == null && t == null)) {
+            return FilterReply.NEUTRAL;
+        }
+        Rule rule = resolve(logger.getName());
+        int levelIndex = levelIndex(level);
+        int rate = rule.rates[levelIndex];
+        //级别本身没有开启的日志交给 logger 自己拒绝，不占用采样计数
+        if (rate <= 1 || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        int[] threadCounters = counters.get();
+        int index = rule.slot * LEVEL_COUNT + levelIndex;
+        if (index >= threadCounters.length) {
+            int[] larger = new int[Math.max(index + 1, threadCounters.length * 2)];
+            System.arraycopy(threadCounters, 0, larger, 0, threadCounters.length);
+            counters.set(larger);
+            threadCounters = larger;
+        }
+        if (threadCounters[index]++ % rate == 0) {
+            return FilterReply.NEUTRAL;
+        }
+        rule.sampledOut.increment();
+        return FilterReply.DENY;
+    }
+
+    private Rule resolve(String loggerName) {
+        State current = state;
+        Rule rule = current.resolved.get(loggerName);
+        if (rule == null) {
+            rule = lookup(current.rules, loggerName);
+            current.resolved.put(loggerName, rule);
+        }
+        return rule;
+    }
+
+    private static Rule lookup(Map<String, Rule> current, String loggerName) {
+        String name = loggerName;
+        while (true) {
+            Rule rule = current.get(name);
+            if (rule != null) {
+                return rule;
+            }
+            int dot = name.lastIndexOf('.');
+            if (dot < 0) {
+                break;
+            }
+            name = name.substring(0, dot);
+        }
+        Rule root = current.get(Logger.ROOT_LOGGER_NAME);
+        return root == null ? NONE : root;
+    }
+
+    /**
+     * 设置 loggerName 及其子 logger 在 level 级别上每 rate 条输出 1 条，rate 小于等于 1 表示取消采样
+     * level 只能是 TRACE 到 ERROR，OFF、ALL 不是日志的级别，不能采样
+     */
+    public synchronized void setRate(String loggerName, Level level, int rate) {
+        if (level == null || level == Level.OFF || level == Level.ALL) {
+            throw new IllegalArgumentException("level must be one of TRACE, DEBUG, INFO, WARN, ERROR: " + level);
+        }
+        Map<String, Rule> copy = new TreeMap<>(state.rules);
+        Rule rule = copy.get(loggerName);
+        int[] rates = rule == null ? new int[LEVEL_COUNT] : rule.rates.clone();
+        rates[levelIndex(level)] = Math.max(rate, 0);
+        boolean empty = true;
+        for (int each : rates) {
+            empty &= each <= 1;
+        }
+        if (empty) {
+            copy.remove(loggerName);
+        } else {
+            copy.put(loggerName, new Rule(rule == null ? slots.getAndIncrement() : rule.slot, rates, rule));
+        }
+        state = new State(copy);
+        enabled = !copy.isEmpty();
+    }
+
+    public Map<String, Map<String, Object>> rules() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        state.rules.forEach((loggerName, rule) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            for (int i = 0; i < LEVEL_COUNT; i++) {
+                if (rule.rates[i] > 1) {
+                    item.put(levelOf(i).levelStr, "1/" + rule.rates[i]);
+                }
+            }
+            item.put("sampledOut", rule.sampledOut.sum());
+            result.put(loggerName, item);
+        });
+        return result;
+    }
+
+    static int levelIndex(Level level) {
+        switch (level.toInt()) {
+            case Level.TRACE_INT:
+                return 0;
+            case Level.DEBUG_INT:
+                return 1;
+            case Level.INFO_INT:
+                return 2;
+            case Level.WARN_INT:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+    private static Level levelOf(int index) {
+        return new Level[]{Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR}[index];
+    }
+
+    private static final class State {
+        private final Map<String, Rule> rules;
+        private final ConcurrentHashMap<String, Rule> resolved = new ConcurrentHashMap<>();
+
+        private State(Map<String, Rule> rules) {
+            this.rules = rules;
+        }
+    }
+
+    private static final class Rule {
+        private final int slot;
+        private final int[] rates;
+        private final LongAdder sampledOut;
+
+        private Rule(int slot, int[] rates) {
+            this(slot, rates, null);
+        }
+
+        private Rule(int slot, int[] rates, Rule previous) {
+            this.slot = slot;
+            this.rates = rates;
+            this.sampledOut = previous == null ? new LongAdder() : previous.sampledOut;
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package com.example.businesscodepit.thirteen;
 
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
 import lombok.extern.log4j.Log4j2;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 import org.springframework.util.StopWatch;
@@ -10,6 +15,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -58,6 +66,29 @@ public class TestLogController {
         System.out.println("took " + (System.currentTimeMillis() - begin) + " ms");
     }
 
+    /**
+     * 查看 RingBufferAsyncAppender 的丢弃、阻塞、溢出计数，MappedFileAppender 的写入位置和刷盘次数，以及 LevelRoutingAppender 各文件的写入量
+     */
+    @GetMapping("asyncStats")
+    public Map<String, Map<String, Object>> asyncStats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        for (Logger logger : loggerContext.getLoggerList()) {
+            Iterator<Appender<ILoggingEvent>> appenders = logger.iteratorForAppenders();
+            while (appenders.hasNext()) {
+                Appender<?> appender = appenders.next();
+                if (appender instanceof RingBufferAsyncAppender) {
+                    result.put(appender.getName(), ((RingBufferAsyncAppender) appender).stats());
+                } else if (appender instanceof MappedFileAppender) {
+                    result.put(appender.getName(), ((MappedFileAppender) appender).stats());
+                } else if (appender instanceof LevelRoutingAppender) {
+                    result.put(appender.getName(), ((LevelRoutingAppender) appender).stats());
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * 使用日志占位符就不需要进行日志级别判断了？
      *     拼接字符串方式记录 slowString；
@@ -1,15 +1,84 @@
 package com.example.businesscodepit.twelve.handle;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
 /**
  * 描述：
  * <p>
  * 创建时间：2020/05/11
  * 修改时间：
- *
+ *     不可变的接口响应包装：success、data、code、message
+ *     1.序列化使用 APIResponseSerializer，通过 JsonGenerator 按顺序直接写字段，不经过反射和中间对象
+ *     2.通过 constant 创建的响应（例如固定的错误码）在创建时就编码为 UTF-8 字节，
+ *       输出时由 APIResponseHttpMessageConverter 直接写入输出流，不需要再序列化
  * @author yaoyong
  **/
+@JsonSerialize(using = APIResponseSerializer.class)
 public class APIResponse {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final boolean success;
+    private final Object data;
+    private final int code;
+    private final String message;
+    private final SerializedString encoded;
+
+    public APIResponse(boolean success, Object data, int code, String message) {
+        this(success, data, code, message, null);
+    }
+
+    private APIResponse(boolean success, Object data, int code, String message, SerializedString encoded) {
+        this.success = success;
+        this.data = data;
+        this.code = code;
+        this.message = message;
+        this.encoded = encoded;
+    }
+
+    /**
+     * 创建一个没有 data 的固定响应，并预先编码为 JSON 字节，适合作为常量或者缓存复用
+     */
+    public static APIResponse constant(boolean success, int code, String message) {
+        APIResponse response = new APIResponse(success, null, code, message);
+        StringWriter json = new StringWriter(64);
+        try (JsonGenerator gen = JSON_FACTORY.createGenerator(json)) {
+            APIResponseSerializer.writeFields(response, gen);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        SerializedString encoded = new SerializedString(json.toString());
+        //SerializedString 内部会缓存 UTF-8 字节，这里提前编码一次，之后每次输出都直接复用
+        encoded.asUnquotedUTF8();
+        return new APIResponse(success, null, code, message, encoded);
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public Object getData() {
+        return data;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
 
-    public APIResponse(boolean b, Object o, int code, String message) {
+    /**
+     * @return 预先编码好的 JSON，不是通过 constant 创建的返回 null
+     */
+    SerializedString getEncoded() {
+        return encoded;
     }
 }
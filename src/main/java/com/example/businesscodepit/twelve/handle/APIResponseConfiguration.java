@@ -0,0 +1,22 @@
+package com.example.businesscodepit.twelve.handle;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     Spring Boot 会把容器中的 HttpMessageConverter 放在默认转换器之前，
+ *     所以 APIResponse 总是先由 APIResponseHttpMessageConverter 输出
+ * @author yaoyong
+ **/
+@Configuration
+public class APIResponseConfiguration {
+    @Bean
+    public APIResponseHttpMessageConverter apiResponseHttpMessageConverter(ObjectMapper objectMapper) {
+        return new APIResponseHttpMessageConverter(objectMapper);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.businesscodepit.twelve.handle;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     只负责输出 APIResponse 的消息转换器，注册在默认的 Jackson 转换器之前
+ *     1.预先编码过的响应（APIResponse.constant）直接把缓存的 UTF-8 字节写入响应输出流，并带上 Content-Length
+ *     2.其它响应用 JsonGenerator 直接在响应输出流上流式序列化，不先生成完整的 byte[] 或 String
+ *       响应输出流归 Servlet 容器管理，关闭 JsonGenerator 时不能连带关闭它（AUTO_CLOSE_TARGET），只 flush
+ * @author yaoyong
+ **/
+public class APIResponseHttpMessageConverter extends AbstractHttpMessageConverter<APIResponse> {
+    private final ObjectMapper objectMapper;
+
+    public APIResponseHttpMessageConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return APIResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(@Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected APIResponse readInternal(Class<? extends APIResponse> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("APIResponse is write only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(APIResponse response, @Nullable MediaType contentType) {
+        SerializedString encoded = response.getEncoded();
+        return encoded == null ? null : (long) encoded.asUnquotedUTF8().length;
+    }
+
+    @Override
+    protected void writeInternal(APIResponse response, HttpOutputMessage outputMessage) throws IOException {
+        SerializedString encoded = response.getEncoded();
+        if (encoded != null) {
+            outputMessage.getBody().write(encoded.asUnquotedUTF8());
+            return;
+        }
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(outputMessage.getBody(), JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            objectMapper.writeValue(gen, response);
+            gen.flush();
+        }
+    }
+}
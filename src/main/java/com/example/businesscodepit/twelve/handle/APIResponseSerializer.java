@@ -0,0 +1,61 @@
+package com.example.businesscodepit.twelve.handle;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     APIResponse 的流式序列化器
+ *     字段名使用 SerializedString，UTF-8 编码只做一次；data 交给 SerializerProvider 按实际类型序列化；
+ *     预先编码过的响应直接作为原始值写出
+ * @author yaoyong
+ **/
+public class APIResponseSerializer extends JsonSerializer<APIResponse> {
+    private static final SerializedString SUCCESS = new SerializedString("success");
+    private static final SerializedString DATA = new SerializedString("data");
+    private static final SerializedString CODE = new SerializedString("code");
+    private static final SerializedString MESSAGE = new SerializedString("message");
+
+    @Override
+    public void serialize(APIResponse value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        SerializedString encoded = value.getEncoded();
+        if (encoded != null) {
+            //UTF8JsonGenerator 会直接拷贝 SerializedString 缓存的 UTF-8 字节
+            gen.writeRawValue(encoded);
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeFieldName(SUCCESS);
+        gen.writeBoolean(value.isSuccess());
+        gen.writeFieldName(DATA);
+        serializers.defaultSerializeValue(value.getData(), gen);
+        gen.writeFieldName(CODE);
+        gen.writeNumber(value.getCode());
+        gen.writeFieldName(MESSAGE);
+        gen.writeString(value.getMessage());
+        gen.writeEndObject();
+    }
+
+    /**
+     * 不依赖 ObjectMapper 写出没有 data 的响应，用于 APIResponse.constant 预编码
+     */
+    static void writeFields(APIResponse value, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName(SUCCESS);
+        gen.writeBoolean(value.isSuccess());
+        gen.writeFieldName(DATA);
+        gen.writeNull();
+        gen.writeFieldName(CODE);
+        gen.writeNumber(value.getCode());
+        gen.writeFieldName(MESSAGE);
+        gen.writeString(value.getMessage());
+        gen.writeEndObject();
+    }
+}
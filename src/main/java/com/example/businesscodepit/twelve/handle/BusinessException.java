@@ -9,6 +9,7 @@ package com.example.businesscodepit.twelve.handle;
  * @author yaoyong
  **/
 public class BusinessException extends RuntimeException{
+    private static final long serialVersionUID = 1L;
     private int code;
     private String msg;
 
@@ -0,0 +1,179 @@
+package com.example.businesscodepit.twelve.handle;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     单个 Controller 方法的熔断器，根据最近 WINDOW_SECONDS 秒的系统异常比例在三种状态间切换：
+ *     1.CLOSED：正常放行，窗口内调用数不少于 MINIMUM_CALLS 且异常比例达到 FAILURE_RATE_THRESHOLD 时打开
+ *     2.OPEN：直接拒绝，不再让请求去撞同一个昂贵的失败（比如超时的下游），OPEN_MILLIS 之后进入半开
+ *     3.HALF_OPEN：只放行 HALF_OPEN_CALLS 个试探请求，全部成功则关闭并清空窗口，任何一个失败则重新打开
+ *     滑动窗口按秒分桶组成一个环，写入无锁，和 nineteen.RollingWindow 的做法一样
+ * @author yaoyong
+ **/
+public class CircuitBreaker {
+    static final int WINDOW_SECONDS = 10;
+    static final int MINIMUM_CALLS = 20;
+    static final double FAILURE_RATE_THRESHOLD = 0.5;
+    static final long OPEN_MILLIS = 5000;
+    static final int HALF_OPEN_CALLS = 3;
+
+    private static final long BUCKET_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long OPEN_NANOS = TimeUnit.MILLISECONDS.toNanos(OPEN_MILLIS);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final LongSupplier clock;
+    private final Bucket[] buckets = new Bucket[WINDOW_SECONDS];
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private volatile long openedAtNanos;
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+    private final AtomicInteger halfOpenSuccesses = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    public CircuitBreaker(String name, LongSupplier clock) {
+        this.name = name;
+        this.clock = clock;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    /**
+     * 调用前判断是否放行，返回 true 时调用方必须在结束后调用 onSuccess 或 onFailure
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.OPEN) {
+            if (clock.getAsLong() - openedAtNanos < OPEN_NANOS || !transitionToHalfOpen()) {
+                rejected.increment();
+                return false;
+            }
+            current = State.HALF_OPEN;
+        }
+        if (current == State.HALF_OPEN && halfOpenPermits.incrementAndGet() > HALF_OPEN_CALLS) {
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void onSuccess() {
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            if (halfOpenSuccesses.incrementAndGet() >= HALF_OPEN_CALLS && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                resetWindow();
+            }
+            return;
+        }
+        current(clock.getAsLong()).calls.increment();
+    }
+
+    public void onFailure() {
+        long now = clock.getAsLong();
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            if (state.compareAndSet(State.HALF_OPEN, State.OPEN)) {
+                openedAtNanos = now;
+            }
+            return;
+        }
+        Bucket bucket = current(now);
+        bucket.calls.increment();
+        bucket.failures.increment();
+        if (current == State.CLOSED) {
+            long[] totals = totals(now);
+            if (totals[0] >= MINIMUM_CALLS && totals[1] >= totals[0] * FAILURE_RATE_THRESHOLD
+                    && state.compareAndSet(State.CLOSED, State.OPEN)) {
+                openedAtNanos = now;
+            }
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private synchronized boolean transitionToHalfOpen() {
+        //只有在仍然是 OPEN 时才清零试探计数，避免并发进入时把已经放行的试探请求再清掉
+        if (state.get() == State.OPEN) {
+            halfOpenPermits.set(0);
+            halfOpenSuccesses.set(0);
+            state.set(State.HALF_OPEN);
+        }
+        return state.get() == State.HALF_OPEN;
+    }
+
+    private void resetWindow() {
+        for (Bucket bucket : buckets) {
+            synchronized (bucket) {
+                bucket.epoch = Long.MIN_VALUE;
+                bucket.calls.reset();
+                bucket.failures.reset();
+            }
+        }
+    }
+
+    private Bucket current(long nowNanos) {
+        long epoch = Math.floorDiv(nowNanos, BUCKET_NANOS);
+        Bucket bucket = buckets[(int) Math.floorMod(epoch, (long) WINDOW_SECONDS)];
+        if (bucket.epoch != epoch) {
+            synchronized (bucket) {
+                if (bucket.epoch != epoch) {
+                    bucket.calls.reset();
+                    bucket.failures.reset();
+                    bucket.epoch = epoch;
+                }
+            }
+        }
+        return bucket;
+    }
+
+    private long[] totals(long nowNanos) {
+        long currentEpoch = Math.floorDiv(nowNanos, BUCKET_NANOS);
+        long calls = 0;
+        long failures = 0;
+        for (Bucket bucket : buckets) {
+            long age = currentEpoch - bucket.epoch;
+            if (age >= 0 && age < WINDOW_SECONDS) {
+                calls += bucket.calls.sum();
+                failures += bucket.failures.sum();
+            }
+        }
+        return new long[]{calls, failures};
+    }
+
+    public Map<String, Object> snapshot() {
+        long[] totals = totals(clock.getAsLong());
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("state", state.get());
+        result.put("windowSeconds", WINDOW_SECONDS);
+        result.put("calls", totals[0]);
+        result.put("failures", totals[1]);
+        result.put("failureRate", totals[0] == 0 ? 0.0 : (double) totals[1] / totals[0]);
+        result.put("rejected", rejected.sum());
+        return result;
+    }
+
+    private static final class Bucket {
+        private volatile long epoch = Long.MIN_VALUE;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.businesscodepit.twelve.handle;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     注册熔断拦截器，查看熔断状态的接口本身不参与熔断
+ * @author yaoyong
+ **/
+@Configuration
+public class CircuitBreakerConfiguration implements WebMvcConfigurer {
+    @Autowired
+    private CircuitBreakerInterceptor circuitBreakerInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(circuitBreakerInterceptor).excludePathPatterns("/circuitBreaker/**");
+    }
+}
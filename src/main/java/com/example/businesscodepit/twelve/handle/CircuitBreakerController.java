@@ -0,0 +1,28 @@
+package com.example.businesscodepit.twelve.handle;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     查看各个 Controller 方法的熔断器状态
+ * @author yaoyong
+ **/
+@RestController
+@RequestMapping("circuitBreaker")
+public class CircuitBreakerController {
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @GetMapping
+    public Map<String, Map<String, Object>> state() {
+        return circuitBreakerRegistry.snapshot();
+    }
+}
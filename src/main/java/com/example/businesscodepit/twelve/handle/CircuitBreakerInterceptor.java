@@ -0,0 +1,76 @@
+package com.example.businesscodepit.twelve.handle;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     在 Controller 方法执行之前检查熔断器，打开时直接输出预编码的 503 响应，不进入 Controller，也不走异常处理流程
+ *     失败由 RestControllerExceptionHandler 通过 recordFailure 记录（只有它知道是系统异常还是预期内的业务异常），
+ *     afterCompletion 中没有被记录为失败的调用都算成功
+ * @author yaoyong
+ **/
+@Component
+public class CircuitBreakerInterceptor implements HandlerInterceptor {
+    public static final int CIRCUIT_OPEN_CODE = 5030;
+    private static final String FAILURE_RECORDED = CircuitBreakerInterceptor.class.getName() + ".FAILURE_RECORDED";
+    private static final String BREAKER = CircuitBreakerInterceptor.class.getName() + ".BREAKER";
+    private static final APIResponse CIRCUIT_OPEN = APIResponse.constant(false, CIRCUIT_OPEN_CODE, "服务暂时不可用，请稍后再试");
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        CircuitBreaker breaker = circuitBreakerRegistry.get((HandlerMethod) handler);
+        if (breaker.tryAcquire()) {
+            request.setAttribute(BREAKER, breaker);
+            return true;
+        }
+        byte[] body = CIRCUIT_OPEN.getEncoded().asUnquotedUTF8();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        return false;
+    }
+
+    /**
+     * 把当前请求记为失败，请求没有经过熔断器（比如被排除的路径）时什么也不做
+     */
+    public static void recordFailure(HttpServletRequest request) {
+        CircuitBreaker breaker = (CircuitBreaker) request.getAttribute(BREAKER);
+        if (breaker != null && request.getAttribute(FAILURE_RECORDED) == null) {
+            request.setAttribute(FAILURE_RECORDED, Boolean.TRUE);
+            breaker.onFailure();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        CircuitBreaker breaker = (CircuitBreaker) request.getAttribute(BREAKER);
+        if (breaker == null || request.getAttribute(FAILURE_RECORDED) != null) {
+            return;
+        }
+        //异常没有被 RestControllerExceptionHandler 处理（ex 不为空）时同样算作失败
+        if (ex == null) {
+            breaker.onSuccess();
+        } else {
+            breaker.onFailure();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.businesscodepit.twelve.handle;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     按 Controller 方法保存熔断器
+ *     HandlerMethod 每次请求都可能是新的实例（createWithResolvedBean），所以用底层的 Method 作为 key
+ * @author yaoyong
+ **/
+@Component
+public class CircuitBreakerRegistry {
+    private final ConcurrentHashMap<Method, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public CircuitBreaker get(HandlerMethod handlerMethod) {
+        Method method = handlerMethod.getMethod();
+        CircuitBreaker breaker = breakers.get(method);
+        if (breaker == null) {
+            breaker = breakers.computeIfAbsent(method,
+                    key -> new CircuitBreaker(handlerMethod.getShortLogMessage(), System::nanoTime));
+        }
+        return breaker;
+    }
+
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        breakers.values().forEach(breaker -> result.put(breaker.getName(), breaker.snapshot()));
+        return result;
+    }
+}
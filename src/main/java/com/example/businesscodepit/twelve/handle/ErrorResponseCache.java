@@ -0,0 +1,56 @@
+package com.example.businesscodepit.twelve.handle;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     按 错误码 + 错误信息 缓存预先编码好的错误响应（APIResponse.constant）
+ *     同一种业务异常的响应内容是完全一样的，没必要每次都走一遍 JSON 序列化
+ *     错误信息可能是动态拼出来的，所以缓存条目数有上限，超过后不再缓存：
+ *     此时返回普通的 APIResponse，由 APIResponseHttpMessageConverter 在输出时流式序列化一次，
+ *     而不是每次都通过 constant 预先编码一份只用一次的字节；缓存内的条目通过 computeIfAbsent 保证每个 Key 只编码一次
+ * @author yaoyong
+ **/
+public class ErrorResponseCache {
+    static final int MAX_ENTRIES = 1024;
+
+    private final ConcurrentHashMap<Key, APIResponse> cache = new ConcurrentHashMap<>();
+
+    public APIResponse get(int code, String message) {
+        Key key = new Key(code, message);
+        APIResponse response = cache.get(key);
+        if (response != null) {
+            return response;
+        }
+        if (cache.size() < MAX_ENTRIES) {
+            return cache.computeIfAbsent(key, k -> APIResponse.constant(false, k.code, k.message));
+        }
+        return new APIResponse(false, null, code, message);
+    }
+
+    private static final class Key {
+        private final int code;
+        private final String message;
+
+        private Key(int code, String message) {
+            this.code = code;
+            this.message = message;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return code == key.code && (message == null ? key.message == null : message.equals(key.message));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * code + (message == null ? 0 : message.hashCode());
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package com.example.businesscodepit.eleven.Handle;
 
+import com.example.businesscodepit.nineteen.MetricsAspect;
 import com.example.businesscodepit.twelve.handle.APIResponse;
 import com.example.businesscodepit.twelve.handle.BusinessException;
+import com.example.businesscodepit.twelve.handle.CircuitBreakerInterceptor;
+import com.example.businesscodepit.twelve.handle.ErrorResponseCache;
+import com.example.businesscodepit.twelve.handle.SampledExceptionLogger;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.method.HandlerMethod;
@@ -14,7 +20,11 @@ import javax.servlet.http.HttpServletRequest;
  * <p>
  * 创建时间：2020/05/11
  * 修改时间：
- *
+ *     业务异常是大量出现的正常结果，处理路径需要尽量便宜：
+ *     1.响应体按 错误码 + 错误信息 预先编码并缓存（ErrorResponseCache），由 APIResponseHttpMessageConverter 直接输出字节
+ *     2.业务异常日志按错误码限流（SampledExceptionLogger），每秒每个错误码最多完整记录 BUSINESS_LOG_PERMITS_PER_SECOND 条
+ *     3.日志使用占位符，不再每次都 String.format
+ *     系统异常会计入当前 Controller 方法的熔断器（CircuitBreakerInterceptor），业务异常属于正常结果，不计入
  * @author yaoyong
  **/
 
@@ -23,16 +33,24 @@ import javax.servlet.http.HttpServletRequest;
 public class RestControllerExceptionHandler {
     private static int GENERIC_SERVER_ERROR_CODE = 2000;
     private static String GENERIC_SERVER_ERROR_MESSAGE = "服务器忙，请稍后再试";
+    private static final APIResponse GENERIC_SERVER_ERROR = APIResponse.constant(false, GENERIC_SERVER_ERROR_CODE, GENERIC_SERVER_ERROR_MESSAGE);
+    private static final int BUSINESS_LOG_PERMITS_PER_SECOND = 10;
+
+    private final ErrorResponseCache errorResponseCache = new ErrorResponseCache();
+    private final SampledExceptionLogger businessExceptionLogger = new SampledExceptionLogger(log, BUSINESS_LOG_PERMITS_PER_SECOND);
 
     @ExceptionHandler
-    public APIResponse handle(HttpServletRequest req, HandlerMethod method, Exception ex) {
+    public ResponseEntity<APIResponse> handle(HttpServletRequest req, HandlerMethod method, Exception ex) {
         if (ex instanceof BusinessException) {
             BusinessException exception = (BusinessException) ex;
-            log.warn(String.format("访问 %s -> %s 出现业务异常！", req.getRequestURI(), method.toString()), ex);
-            return new APIResponse(false, null, exception.getCode(), exception.getMessage());
+            businessExceptionLogger.warn(exception.getCode(), "访问 {} -> {} 出现业务异常！", req.getRequestURI(), method, ex);
+            //MetricsAspect 并发超限时快速失败，返回 429 让客户端知道需要退避重试
+            HttpStatus status = exception.getCode() == MetricsAspect.CONCURRENCY_LIMITED_CODE ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.OK;
+            return ResponseEntity.status(status).body(errorResponseCache.get(exception.getCode(), exception.getMessage()));
         } else {
-            log.error(String.format("访问 %s -> %s 出现系统异常！", req.getRequestURI(), method.toString()), ex);
-            return new APIResponse(false, null, GENERIC_SERVER_ERROR_CODE, GENERIC_SERVER_ERROR_MESSAGE);
+            log.error("访问 {} -> {} 出现系统异常！", req.getRequestURI(), method, ex);
+            CircuitBreakerInterceptor.recordFailure(req);
+            return ResponseEntity.ok(GENERIC_SERVER_ERROR);
         }
     }
 }
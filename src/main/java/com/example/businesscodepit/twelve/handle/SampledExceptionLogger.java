@@ -0,0 +1,105 @@
+package com.example.businesscodepit.twelve.handle;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     按错误码限流的异常日志
+ *     每个错误码每秒最多完整记录 permitsPerSecond 条（包含异常栈），超出的只计数，
+ *     等到下一秒再有同错误码的异常时输出一条汇总，说明上一秒被抑制了多少条
+ *     这样大量预期内的业务异常不会把日志 Appender 打满，又不会完全看不到它们
+ *     错误码来自业务代码，取值不一定有限，所以统计窗口最多保留 MAX_CODES 个：
+ *     满了之后先清理超过 IDLE_WINDOWS 个周期没有再出现、也没有待汇总抑制数的窗口，
+ *     仍然放不下的错误码共用一个溢出窗口限流
+ * @author yaoyong
+ **/
+public class SampledExceptionLogger {
+    static final int MAX_CODES = 256;
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int IDLE_WINDOWS = 60;
+
+    private final Logger logger;
+    private final int permitsPerSecond;
+    private final LongSupplier nanoClock;
+    private final ConcurrentHashMap<Integer, Window> windows = new ConcurrentHashMap<>();
+    private final Window overflow;
+
+    public SampledExceptionLogger(Logger logger, int permitsPerSecond) {
+        this(logger, permitsPerSecond, System::nanoTime);
+    }
+
+    SampledExceptionLogger(Logger logger, int permitsPerSecond, LongSupplier nanoClock) {
+        this.logger = logger;
+        this.permitsPerSecond = permitsPerSecond;
+        this.nanoClock = nanoClock;
+        this.overflow = new Window(nanoClock.getAsLong());
+    }
+
+    /**
+     * 使用 SLF4J 占位符，被抑制的日志不会拼接字符串
+     */
+    public void warn(int code, String format, Object arg1, Object arg2, Throwable ex) {
+        if (!logger.isWarnEnabled()) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        Window window = window(code, now);
+        long start = window.start.get();
+        if (now - start >= WINDOW_NANOS && window.start.compareAndSet(start, now)) {
+            int suppressed = window.suppressed.getAndSet(0);
+            window.logged.set(0);
+            if (suppressed > 0) {
+                if (window == overflow) {
+                    logger.warn("错误码过多，溢出窗口中的业务异常在上一个统计周期内被抑制了 {} 条", suppressed);
+                } else {
+                    logger.warn("错误码 {} 的业务异常在上一个统计周期内被抑制了 {} 条", code, suppressed);
+                }
+            }
+        }
+        window.lastSeen = now;
+        if (window.logged.incrementAndGet() <= permitsPerSecond) {
+            logger.warn(format, arg1, arg2, ex);
+        } else {
+            window.suppressed.incrementAndGet();
+        }
+    }
+
+    private Window window(int code, long now) {
+        Window window = windows.get(code);
+        if (window != null) {
+            return window;
+        }
+        if (windows.size() >= MAX_CODES) {
+            windows.values().removeIf(w -> now - w.lastSeen >= IDLE_WINDOWS * WINDOW_NANOS && w.suppressed.get() == 0);
+            if (windows.size() >= MAX_CODES) {
+                return overflow;
+            }
+        }
+        return windows.computeIfAbsent(code, key -> new Window(now));
+    }
+
+    int trackedCodes() {
+        return windows.size();
+    }
+
+    private static final class Window {
+        private final AtomicLong start;
+        private final AtomicInteger logged = new AtomicInteger();
+        private final AtomicInteger suppressed = new AtomicInteger();
+        private volatile long lastSeen;
+
+        private Window(long now) {
+            this.start = new AtomicLong(now);
+            this.lastSeen = now;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.businesscodepit.twelve.handle;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     不收集异常栈的业务异常
+ *     参数校验失败、库存不足这类业务异常是正常的、大量出现的结果，抛出位置也是确定的，
+ *     填充异常栈（fillInStackTrace 需要遍历整个调用栈）的开销远大于创建异常对象本身，
+ *     对这类异常可以选择使用本类，用错误码定位问题而不是异常栈
+ *     注意：排查问题时如果确实需要异常栈，不要使用本类
+ * @author yaoyong
+ **/
+public class StacklessBusinessException extends BusinessException {
+    private static final long serialVersionUID = 1L;
+
+    public StacklessBusinessException(String message, int code) {
+        super(message, code);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.businesscodepit.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     有界的多生产者单消费者环形队列
+ *     1.容量向上取整为 2 的幂，下标通过 & mask 计算
+ *     2.生产者通过 CAS 抢占 producerIndex 上的一个位置，再把元素写入对应槽位，
+ *       队列满时 offer 直接返回 false，不会阻塞业务线程
+ *     3.只有一个消费者线程调用 poll，消费位置不需要 CAS
+ *     与 ArrayBlockingQueue 相比没有锁，也不会为每个元素创建链表节点
+ *     LogCapturePipeline 和 LevelRoutingAppender 都用它做后台线程的输入队列，所以放在公共的 util 包中
+ * @author yaoyong
+ **/
+public class MpscRingBuffer<E> {
+    private final AtomicReferenceArray<E> buffer;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    public MpscRingBuffer(int capacity) {
+        int actualCapacity = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.buffer = new AtomicReferenceArray<>(actualCapacity);
+        this.mask = actualCapacity - 1;
+    }
+
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            long producer = producerIndex.get();
+            if (producer - consumerIndex.get() > mask) {
+                return false;
+            }
+            if (producerIndex.compareAndSet(producer, producer + 1)) {
+                buffer.lazySet((int) producer & mask, e);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 只能由单个消费者线程调用；生产者已经抢占位置但还没写入元素时也返回 null，稍后再取即可
+     */
+    public E poll() {
+        long consumer = consumerIndex.get();
+        int index = (int) consumer & mask;
+        E e = buffer.get(index);
+        if (e == null) {
+            return null;
+        }
+        buffer.lazySet(index, null);
+        consumerIndex.lazySet(consumer + 1);
+        return e;
+    }
+
+    public int size() {
+        return (int) Math.max(0, producerIndex.get() - consumerIndex.get());
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.businesscodepit.nineteen;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     固定上限时超出即拒绝；自适应模式下耗时变长会收缩上限，只有在途请求数达到上限时才加性增，并发释放不丢样本
+ * @author yaoyong
+ **/
+class ConcurrencyLimiterTest {
+
+    @Test
+    void rejectsBeyondFixedLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, false);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        limiter.release(0);
+        assertTrue(limiter.tryAcquire());
+        assertEquals(1L, limiter.snapshot().get("rejected"));
+    }
+
+    @Test
+    void adaptiveLimitShrinksWhenLatencyGrows() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, true);
+        runWindow(limiter, TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(100, limiter.snapshot().get("limit"));
+        runWindow(limiter, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(90, limiter.snapshot().get("limit"));
+    }
+
+    @Test
+    void adaptiveLimitGrowsOnlyWhenSaturated() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, true);
+        runWindow(limiter, TimeUnit.MILLISECONDS.toNanos(10));
+        runWindow(limiter, TimeUnit.MILLISECONDS.toNanos(30));
+        assertEquals(90, limiter.snapshot().get("limit"));
+        //半数利用率不算饱和，上限保持不变
+        runWindow(limiter, TimeUnit.MILLISECONDS.toNanos(10), 45);
+        assertEquals(90, limiter.snapshot().get("limit"));
+        //在途请求数达到上限才加 1
+        runWindow(limiter, TimeUnit.MILLISECONDS.toNanos(10), 90);
+        assertEquals(91, limiter.snapshot().get("limit"));
+    }
+
+    @Test
+    void concurrentReleasesDoNotLoseSamples() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1000, true);
+        int threads = 4;
+        int perThread = ConcurrencyLimiter.SAMPLE_WINDOW * 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    if (limiter.tryAcquire())
+                        limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        //耗时恒定，窗口平均值一旦因为丢样本被算小，minRtt 就会偏低，后续窗口都会被误判为排队而收缩上限
+        assertEquals(1000, limiter.snapshot().get("limit"));
+        assertEquals(1000L, limiter.snapshot().get("minRttMicros"));
+    }
+
+    @Test
+    void cancelReturnsPermitWithoutSampling() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, true);
+        assertTrue(limiter.tryAcquire());
+        limiter.cancel();
+        assertEquals(0, limiter.snapshot().get("inFlight"));
+        assertEquals(0L, limiter.snapshot().get("minRttMicros"));
+    }
+
+    private static void runWindow(ConcurrencyLimiter limiter, long elapsedNanos, int inFlight) {
+        for (int i = 0; i < inFlight - 1; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        for (int i = 0; i < ConcurrencyLimiter.SAMPLE_WINDOW; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(elapsedNanos);
+        }
+        for (int i = 0; i < inFlight - 1; i++) {
+            limiter.cancel();
+        }
+    }
+
+    private static void runWindow(ConcurrencyLimiter limiter, long elapsedNanos) {
+        for (int i = 0; i < ConcurrencyLimiter.SAMPLE_WINDOW; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(elapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.businesscodepit.nineteen;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     验证对数分桶的边界以及百分位数的误差范围
+ * @author yaoyong
+ **/
+class LatencyHistogramTest {
+
+    @Test
+    void bucketBoundsAreContiguous() {
+        for (int i = 1; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            assertEquals(LatencyHistogram.highestValueOf(i - 1) + 1, LatencyHistogram.lowestValueOf(i));
+            assertEquals(i, LatencyHistogram.bucketIndex(LatencyHistogram.lowestValueOf(i)));
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    void percentilesStayWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(100000, snapshot.getTotalCount());
+        assertWithinError(50000, snapshot.getValueAtPercentile(50));
+        assertWithinError(99000, snapshot.getValueAtPercentile(99));
+        assertWithinError(99900, snapshot.getValueAtPercentile(99.9));
+        assertWithinError(100000, snapshot.getMax());
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / LatencyHistogram.SUB_BUCKET_COUNT,
+                "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.businesscodepit.nineteen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     日志文本在业务线程上生成，之后修改参数不影响日志；servlet 对象只记录类型；截断按 UTF-8 字节数计算，
+ *     超过上限时序列化被中断，大对象不会被完整序列化；空闲的后台线程一直 park，stop 时被唤醒
+ * @author yaoyong
+ **/
+class LogCapturePipelineTest {
+
+    private LogCapturePipeline pipeline() {
+        LogCapturePipeline pipeline = new LogCapturePipeline();
+        ReflectionTestUtils.setField(pipeline, "objectMapper", new ObjectMapper());
+        return pipeline;
+    }
+
+    @Test
+    void snapshotIsTakenOnCallerThread() {
+        LogCapturePipeline pipeline = pipeline();
+        List<String> names = new ArrayList<>(Collections.singletonList("before"));
+        String text = "immutable";
+        String snapshot = pipeline.snapshot(new Object[]{names, text, new MockHttpServletRequest(), null}, true, 0);
+        names.set(0, "after");
+        assertEquals("[[\"before\"],\"immutable\",\"<ServletRequest>\",null]", snapshot);
+
+        StringBuilder mutable = new StringBuilder("before");
+        String returned = pipeline.snapshot(mutable, false, 0);
+        mutable.append("-after");
+        assertEquals("before", returned);
+    }
+
+    @Test
+    void truncatesByUtf8Bytes() {
+        LogCapturePipeline pipeline = pipeline();
+        String text = "中文abc😀";
+        assertNull(LogCapturePipeline.truncateUtf8(text, 100));
+        assertEquals("中文a", LogCapturePipeline.truncateUtf8(text, 7));
+        assertEquals("中文abc", LogCapturePipeline.truncateUtf8(text, 12));
+        assertNull(LogCapturePipeline.truncateUtf8(text, 13));
+        String rendered = pipeline.render(text, false, 8);
+        assertEquals("中文ab...(truncated)", rendered);
+        assertTrue(rendered.replace("...(truncated)", "").getBytes(StandardCharsets.UTF_8).length <= 8);
+        assertEquals(rendered, pipeline.snapshot(new StringBuilder(text), false, 8));
+    }
+
+    @Test
+    void stopsSerializingAtLimit() {
+        LogCapturePipeline pipeline = pipeline();
+        AtomicInteger serialized = new AtomicInteger();
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            items.add(new Counted(serialized));
+        }
+        String snapshot = pipeline.snapshot(new Object[]{items}, true, 64);
+        assertTrue(snapshot.endsWith("...(truncated)"), snapshot);
+        //Jackson 内部有约 8KB 的输出缓冲区，写满一次才会交给输出流，所以会多序列化一些，但远不到全部
+        assertTrue(serialized.get() < 1000, "serialized " + serialized.get());
+        assertEquals(1L, pipeline.stats().get("truncated"));
+    }
+
+    @Test
+    void stopWakesParkedDrainer() throws InterruptedException {
+        LogCapturePipeline pipeline = pipeline();
+        pipeline.start();
+        Thread drainer = (Thread) ReflectionTestUtils.getField(pipeline, "drainer");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (drainer.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.WAITING, drainer.getState());
+        long begin = System.nanoTime();
+        pipeline.stop();
+        assertFalse(drainer.isAlive());
+        assertTrue(System.nanoTime() - begin < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    static class Counted {
+        private final AtomicInteger serialized;
+
+        Counted(AtomicInteger serialized) {
+            this.serialized = serialized;
+        }
+
+        public String getValue() {
+            serialized.incrementAndGet();
+            return "value";
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.businesscodepit.nineteen;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.example.businesscodepit.twelve.handle.BusinessException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     业务异常按错误码限流记录为 WARN，系统异常仍然每次记录为 ERROR
+ * @author yaoyong
+ **/
+class MetricsAspectExceptionLogTest {
+    private final Logger logger = (Logger) LoggerFactory.getLogger(MetricsAspect.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @Metrics(logParameters = false, logReturn = false)
+    public static class Target {
+        public void business() {
+            throw new BusinessException("库存不足", 1001);
+        }
+
+        public void system() {
+            throw new IllegalStateException("boom");
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        appender.setContext(logger.getLoggerContext());
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void samplesBusinessExceptions() {
+        MetricsAspect aspect = new MetricsAspect();
+        ReflectionTestUtils.setField(aspect, "metricsRegistry", new MetricsRegistry());
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Target());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        Target proxy = factory.getProxy();
+
+        for (int i = 0; i < 50; i++) {
+            assertThrows(BusinessException.class, proxy::business);
+        }
+        assertEquals(0, appender.list.stream().filter(e -> e.getLevel() == Level.ERROR).count());
+        long warned = appender.list.stream().filter(e -> e.getLevel() == Level.WARN).count();
+        //每秒每个错误码最多完整记录 10 条，跨过一个周期时会多出一条汇总和新周期的记录
+        assertTrue(warned >= 10 && warned < 50, "warned " + warned);
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IllegalStateException.class, proxy::system);
+        }
+        assertEquals(3, appender.list.stream().filter(e -> e.getLevel() == Level.ERROR).count());
+    }
+}
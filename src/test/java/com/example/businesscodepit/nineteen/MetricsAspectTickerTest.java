@@ -0,0 +1,88 @@
+package com.example.businesscodepit.nineteen;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     注入一个每次读取前进 250 微秒的假时钟，验证耗时按微秒精度记录到直方图中；
+ *     慢调用记录失败时，成功的调用仍然按成功返回和计数
+ * @author yaoyong
+ **/
+class MetricsAspectTickerTest {
+
+    @Metrics(logParameters = false, logReturn = false, logException = false, windowSeconds = 60)
+    public static class Target {
+        public String hello() {
+            return "hello";
+        }
+    }
+
+    @Metrics(logParameters = false, logReturn = false, slowThresholdMillis = 1)
+    public static class SlowTarget {
+        public String hello() {
+            return "hello";
+        }
+    }
+
+    @Test
+    void slowCallRecorderFailureDoesNotFailTheCall() {
+        AtomicLong now = new AtomicLong();
+        MetricsRegistry registry = new MetricsRegistry();
+        MetricsAspect aspect = new MetricsAspect();
+        ReflectionTestUtils.setField(aspect, "metricsRegistry", registry);
+        ReflectionTestUtils.setField(aspect, "slowCallRecorder", new SlowCallRecorder() {
+            @Override
+            public void record(CompiledMetricsPlan plan, String url, Object[] args, long elapsedNanos, boolean failed) {
+                throw new IllegalStateException("render failed");
+            }
+        });
+        ReflectionTestUtils.setField(registry, "ticker", (Ticker) () -> now.getAndAdd(TimeUnit.MILLISECONDS.toNanos(2)));
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(new SlowTarget());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        SlowTarget proxy = factory.getProxy();
+        assertEquals("hello", proxy.hello());
+
+        Map<String, Object> snapshot = registry.snapshot().values().iterator().next();
+        assertEquals(1L, snapshot.get("success"));
+        assertEquals(0L, snapshot.get("fail"));
+    }
+
+    @Test
+    void recordsMicrosecondLatencyWithFakeTicker() {
+        AtomicLong now = new AtomicLong();
+        MetricsRegistry registry = new MetricsRegistry();
+        MetricsAspect aspect = new MetricsAspect();
+        ReflectionTestUtils.setField(aspect, "metricsRegistry", registry);
+        ReflectionTestUtils.setField(registry, "ticker", (Ticker) () -> now.getAndAdd(TimeUnit.MICROSECONDS.toNanos(250)));
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Target());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        Target proxy = factory.getProxy();
+        for (int i = 0; i < 10; i++) {
+            assertEquals("hello", proxy.hello());
+        }
+
+        Map<String, Object> snapshot = registry.snapshot().values().iterator().next();
+        assertEquals(10L, snapshot.get("success"));
+        //250 落在宽度为 4 的子桶 [248, 251] 中，百分位数返回桶的上界
+        assertEquals(LatencyHistogram.highestValueOf(LatencyHistogram.bucketIndex(250)), snapshot.get("p50Micros"));
+        assertEquals(LatencyHistogram.highestValueOf(LatencyHistogram.bucketIndex(250)), snapshot.get("maxMicros"));
+        Map<String, Object> window = (Map<String, Object>) snapshot.get("window");
+        assertEquals(10L, window.get("calls"));
+        assertEquals(0.0, window.get("errorRate"));
+    }
+}
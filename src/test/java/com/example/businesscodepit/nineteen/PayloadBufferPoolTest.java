@@ -0,0 +1,84 @@
+package com.example.businesscodepit.nineteen;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     缓冲区归还后复用，重复归还和归还外来缓冲区被拒绝，借满后超时失败；生成的数据和校验和与堆上构造的结果一致
+ * @author yaoyong
+ **/
+class PayloadBufferPoolTest {
+
+    @Test
+    void reusesReleasedBuffer() {
+        PayloadBufferPool pool = new PayloadBufferPool();
+        ByteBuffer first = pool.acquire();
+        first.put((byte) 1);
+        pool.release(first);
+        ByteBuffer second = pool.acquire();
+        assertSame(first, second);
+        assertEquals(0, second.position());
+        assertEquals(1, pool.stats().get("allocated"));
+        assertEquals(1, pool.stats().get("inUse"));
+        pool.release(second);
+        assertEquals(0, pool.stats().get("inUse"));
+    }
+
+    @Test
+    void rejectsDoubleAndForeignRelease() {
+        PayloadBufferPool pool = new PayloadBufferPool();
+        ByteBuffer buffer = pool.acquire();
+        pool.release(buffer);
+        assertThrows(IllegalStateException.class, () -> pool.release(buffer));
+        assertThrows(IllegalStateException.class, () -> pool.release(ByteBuffer.allocateDirect(16)));
+        assertEquals(0, pool.stats().get("inUse"));
+        assertEquals(1, pool.stats().get("idle"));
+    }
+
+    @Test
+    void failsWhenExhausted() {
+        PayloadBufferPool pool = new PayloadBufferPool();
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < PayloadBufferPool.MAX_BUFFERS; i++) {
+            buffers.add(pool.acquire());
+        }
+        assertThrows(IllegalStateException.class, pool::acquire);
+        pool.release(buffers.remove(0));
+        buffers.add(pool.acquire());
+        buffers.forEach(pool::release);
+        assertEquals(PayloadBufferPool.MAX_BUFFERS, pool.stats().get("allocated"));
+    }
+
+    @Test
+    void writesPayloadAndChecksum() {
+        PayloadBufferPool pool = new PayloadBufferPool();
+        ByteBuffer buffer = pool.acquire();
+        try {
+            PayloadGenerator.write(buffer, 20000, "-suffix");
+            assertEquals(20007, buffer.position());
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < 20000; i++) {
+                expected.append(PayloadGenerator.FILLER);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(expected.append("-suffix").toString().getBytes(StandardCharsets.UTF_8));
+            assertEquals(crc.getValue(), PayloadGenerator.checksum(buffer));
+            assertEquals(20007, buffer.position());
+        } finally {
+            pool.release(buffer);
+        }
+    }
+}
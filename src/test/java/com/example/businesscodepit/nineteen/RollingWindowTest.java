@@ -0,0 +1,43 @@
+package com.example.businesscodepit.nineteen;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     callsPerSecond 按窗口实际覆盖的时间计算：刚开始统计时不会被整个窗口长度摊薄，窗口填满后按整个窗口计算
+ * @author yaoyong
+ **/
+class RollingWindowTest {
+
+    @Test
+    void callsPerSecondUsesCoveredTime() {
+        RollingWindow window = new RollingWindow(60);
+        long second = TimeUnit.SECONDS.toNanos(1);
+        long begin = 1000 * second;
+        //前 5 秒每秒 10 次调用
+        for (int s = 0; s < 5; s++) {
+            for (int i = 0; i < 10; i++) {
+                window.record(begin + s * second + i, 0, false);
+            }
+        }
+        Map<String, Object> snapshot = window.snapshot(begin + 5 * second);
+        assertEquals(50L, snapshot.get("calls"));
+        assertEquals(10.0, (Double) snapshot.get("callsPerSecond"), 0.01);
+
+        //之后每秒 1 次，持续到窗口填满：最近 60 秒左右只剩这些调用
+        for (int s = 5; s < 200; s++) {
+            window.record(begin + s * second, 0, false);
+        }
+        snapshot = window.snapshot(begin + 200 * second);
+        double rate = (Double) snapshot.get("callsPerSecond");
+        assertEquals(1.0, rate, 0.05);
+    }
+}
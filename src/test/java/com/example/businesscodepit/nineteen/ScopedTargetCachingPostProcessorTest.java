@@ -0,0 +1,68 @@
+package com.example.businesscodepit.nineteen;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     按 business.scoped-target.cache 把 prototype 的代理目标 Bean 切换到 request/thread 作用域，其它 Bean 不受影响
+ * @author yaoyong
+ **/
+class ScopedTargetCachingPostProcessorTest {
+
+    @Test
+    void noneKeepsPrototype() {
+        DefaultListableBeanFactory beanFactory = process(null);
+        assertEquals(BeanDefinition.SCOPE_PROTOTYPE, beanFactory.getBeanDefinition("scopedTarget.say").getScope());
+        assertNotSame(beanFactory.getBean("scopedTarget.say"), beanFactory.getBean("scopedTarget.say"));
+    }
+
+    @Test
+    void threadScopeReusesTargetWithinThread() {
+        DefaultListableBeanFactory beanFactory = process(" Thread ");
+        assertEquals(ScopedTargetCachingPostProcessor.THREAD_SCOPE, beanFactory.getBeanDefinition("scopedTarget.say").getScope());
+        assertNotNull(beanFactory.getRegisteredScope(ScopedTargetCachingPostProcessor.THREAD_SCOPE));
+        assertSame(beanFactory.getBean("scopedTarget.say"), beanFactory.getBean("scopedTarget.say"));
+        assertEquals(BeanDefinition.SCOPE_PROTOTYPE, beanFactory.getBeanDefinition("plain").getScope());
+    }
+
+    @Test
+    void requestScopeOnlyRewritesDefinitions() {
+        DefaultListableBeanFactory beanFactory = process("request");
+        assertEquals(WebApplicationContext.SCOPE_REQUEST, beanFactory.getBeanDefinition("scopedTarget.say").getScope());
+        assertNull(beanFactory.getRegisteredScope(ScopedTargetCachingPostProcessor.THREAD_SCOPE));
+    }
+
+    private static DefaultListableBeanFactory process(String strategy) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("scopedTarget.say", prototype());
+        beanFactory.registerBeanDefinition("plain", prototype());
+        MockEnvironment environment = new MockEnvironment();
+        if (strategy != null) {
+            environment.setProperty(ScopedTargetCachingPostProcessor.PROPERTY, strategy);
+        }
+        ScopedTargetCachingPostProcessor processor = new ScopedTargetCachingPostProcessor();
+        processor.setEnvironment(environment);
+        processor.postProcessBeanFactory(beanFactory);
+        return beanFactory;
+    }
+
+    private static BeanDefinition prototype() {
+        RootBeanDefinition definition = new RootBeanDefinition(Object.class);
+        definition.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+        return definition;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.businesscodepit.nineteen;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     代理目标 Bean 的创建次数按原始 Bean 名称统计；初始化抛出异常时不会在线程上留下过期的开始时间
+ * @author yaoyong
+ **/
+class ScopedTargetMetricsPostProcessorTest {
+    private DefaultListableBeanFactory beanFactory;
+    private ScopedTargetMetricsPostProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("scopedTarget.ok", prototype(Target.class, null));
+        beanFactory.registerBeanDefinition("scopedTarget.broken", prototype(Target.class, "fail"));
+        beanFactory.registerBeanDefinition("plain", prototype(Target.class, null));
+        processor = new ScopedTargetMetricsPostProcessor();
+        processor.setBeanFactory(beanFactory);
+        beanFactory.addBeanPostProcessor(processor);
+    }
+
+    @Test
+    void countsOnlyScopedTargets() {
+        beanFactory.getBean("scopedTarget.ok");
+        beanFactory.getBean("scopedTarget.ok");
+        beanFactory.getBean("plain");
+        Map<String, Map<String, Object>> snapshot = processor.snapshot();
+        assertEquals(1, snapshot.size());
+        assertEquals(2L, snapshot.get("ok").get("created"));
+        assertEquals(0, processor.pendingStarts());
+    }
+
+    @Test
+    void failedInitializationDoesNotLeaveStaleStart() {
+        assertThrows(BeanCreationException.class, () -> beanFactory.getBean("scopedTarget.broken"));
+        beanFactory.getBean("scopedTarget.ok");
+        assertEquals(0, processor.pendingStarts());
+        Map<String, Map<String, Object>> snapshot = processor.snapshot();
+        assertEquals(1L, snapshot.get("ok").get("created"));
+        assertFalse(snapshot.containsKey("broken"));
+    }
+
+    private static BeanDefinition prototype(Class<?> type, String initMethod) {
+        RootBeanDefinition definition = new RootBeanDefinition(type);
+        definition.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+        definition.setInitMethodName(initMethod);
+        return definition;
+    }
+
+    static class Target {
+        public void fail() {
+            throw new IllegalStateException("init failed");
+        }
+    }
+}
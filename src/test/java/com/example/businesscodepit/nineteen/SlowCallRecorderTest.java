@@ -0,0 +1,74 @@
+package com.example.businesscodepit.nineteen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     每次读取前进 1 秒的假时钟让所有调用都成为慢调用；记录的是调用时渲染好的参数文本，之后修改参数不影响记录，
+ *     缓冲区只保留最近 CAPACITY 条
+ * @author yaoyong
+ **/
+class SlowCallRecorderTest {
+
+    @Metrics(logParameters = false, logReturn = false, slowThresholdMillis = 10, maxLogPayloadBytes = 64)
+    public static class Target {
+        public int size(List<String> names) {
+            return names.size();
+        }
+    }
+
+    @Test
+    void recordsRenderedArgumentsOfSlowCalls() {
+        MetricsRegistry registry = new MetricsRegistry();
+        AtomicLong now = new AtomicLong();
+        ReflectionTestUtils.setField(registry, "ticker", (Ticker) () -> now.getAndAdd(TimeUnit.SECONDS.toNanos(1)));
+        LogCapturePipeline pipeline = new LogCapturePipeline();
+        ReflectionTestUtils.setField(pipeline, "objectMapper", new ObjectMapper());
+        SlowCallRecorder recorder = new SlowCallRecorder();
+        ReflectionTestUtils.setField(recorder, "logCapturePipeline", pipeline);
+        MetricsAspect aspect = new MetricsAspect();
+        ReflectionTestUtils.setField(aspect, "metricsRegistry", registry);
+        ReflectionTestUtils.setField(aspect, "slowCallRecorder", recorder);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Target());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        Target proxy = factory.getProxy();
+
+        List<String> names = new ArrayList<>();
+        names.add("first");
+        proxy.size(names);
+        names.set(0, "changed");
+        List<Map<String, Object>> recent = recorder.recent();
+        assertEquals(1, recent.size());
+        assertEquals("[[\"first\"]]", recent.get(0).get("args"));
+        assertEquals(1000L, recent.get(0).get("elapsedMillis"));
+
+        List<String> large = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            large.add("name" + i);
+        }
+        for (int i = 0; i < 200; i++) {
+            proxy.size(large);
+        }
+        recent = recorder.recent();
+        assertEquals(128, recent.size());
+        String args = (String) recent.get(0).get("args");
+        assertTrue(args.startsWith("[[\"name0\","));
+        assertTrue(args.endsWith("...(truncated)"));
+    }
+}
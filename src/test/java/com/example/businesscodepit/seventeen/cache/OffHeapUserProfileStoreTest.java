@@ -0,0 +1,69 @@
+package com.example.businesscodepit.seventeen.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     随机的写入、覆盖、删除之后与 HashMap 的结果一致，包括扩容、跨段和压缩之后
+ * @author yaoyong
+ **/
+class OffHeapUserProfileStoreTest {
+
+    @Test
+    void behavesLikeHashMap() {
+        OffHeapUserProfileStore store = new OffHeapUserProfileStore(256 * 1024, 16);
+        Map<String, String> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50000; i++) {
+            String name = "用户" + random.nextInt(5000);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(name) != null, store.remove(name));
+            } else {
+                String location = "location-" + i;
+                expected.put(name, location);
+                store.put(name, location);
+            }
+        }
+        assertEquals(expected.size(), store.size());
+        UserProfileView view = new UserProfileView();
+        for (int i = 0; i < 5000; i++) {
+            String name = "用户" + i;
+            String location = expected.get(name);
+            assertEquals(location != null, store.get(name, view), name);
+            if (location != null) {
+                assertEquals(name, view.name());
+                assertEquals(location, view.location());
+                assertEquals(location, view.toUserProfile().getLocation());
+            }
+        }
+        Map<String, Object> stats = store.stats();
+        assertTrue((Long) stats.get("compactions") > 0);
+    }
+
+    @Test
+    void explicitCompactKeepsLiveRecords() {
+        OffHeapUserProfileStore store = new OffHeapUserProfileStore(256 * 1024, 1000);
+        for (int i = 0; i < 3000; i++) {
+            store.put("zhuye" + (i % 1000), "location" + i);
+        }
+        store.compact();
+        UserProfileView view = new UserProfileView();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(store.get("zhuye" + i, view));
+            assertEquals("location" + (2000 + i), view.location());
+        }
+        assertFalse(store.get("zhuye1000", view));
+        assertEquals(0L, store.stats().get("deadBytes"));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.businesscodepit.seventeen.cache;
+
+import com.example.businesscodepit.seventeen.UserProfileWeigher;
+import com.example.businesscodepit.seventeen.bean.User;
+import com.example.businesscodepit.seventeen.bean.UserProfile;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     容量按字节数限制、扫描不会冲掉热点条目、两种过期策略以及超大条目被拒绝
+ * @author yaoyong
+ **/
+class SegmentedLruCacheTest {
+    private static final long ENTRY = 100;
+
+    private SegmentedLruCache<Integer, String> cache(long entries, AtomicLong clock) {
+        return SegmentedLruCache.<Integer, String>builder()
+                .maximumWeight(entries * (ENTRY + SegmentedLruCache.ENTRY_OVERHEAD))
+                .concurrencyLevel(1)
+                .weigher((key, value) -> ENTRY)
+                .expireAfterWrite(10, TimeUnit.SECONDS)
+                .expireAfterAccess(3, TimeUnit.SECONDS)
+                .nanoClock(clock::get)
+                .build();
+    }
+
+    @Test
+    void weightBoundedAndScanResistant() {
+        SegmentedLruCache<Integer, String> cache = cache(10, new AtomicLong());
+        for (int i = 0; i < 5; i++) {
+            cache.put(i, "hot" + i);
+            assertNotNull(cache.getIfPresent(i));
+        }
+        for (int i = 100; i < 10000; i++) {
+            cache.put(i, "cold" + i);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals("hot" + i, cache.getIfPresent(i));
+        }
+        assertEquals(10, cache.estimatedSize());
+        assertTrue(cache.weightedSize() <= cache.getMaximumWeight());
+        Map<String, Object> stats = cache.stats();
+        assertEquals(10L, stats.get("hits"));
+        assertEquals(9900L - 5, stats.get("evictions"));
+    }
+
+    @Test
+    void expiresAfterWriteAndAccess() {
+        AtomicLong clock = new AtomicLong();
+        SegmentedLruCache<Integer, String> cache = cache(10, clock);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        for (int i = 0; i < 4; i++) {
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+            assertEquals("a", cache.getIfPresent(1));
+        }
+        assertNull(cache.getIfPresent(2));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertNull(cache.getIfPresent(1));
+        assertEquals(2L, cache.stats().get("expirations"));
+
+        cache.put(3, "c");
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        cache.cleanUp();
+        assertEquals(0, cache.estimatedSize());
+        assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    void userProfilesStayWithinBudget() {
+        SegmentedLruCache<User, UserProfile> cache = SegmentedLruCache.<User, UserProfile>builder()
+                .maximumWeight(1024 * 1024)
+                .weigher(new UserProfileWeigher())
+                .build();
+        for (int i = 1; i <= 200000; i++) {
+            User user = new User("zhuye" + i);
+            cache.put(user, new UserProfile(user, "location" + i));
+        }
+        assertTrue(cache.weightedSize() <= cache.getMaximumWeight());
+        assertTrue(cache.estimatedSize() > 1000);
+
+        SegmentedLruCache<Integer, String> tiny = cache(1, new AtomicLong());
+        tiny.put(1, "a");
+        SegmentedLruCache<Integer, String> rejecting = SegmentedLruCache.<Integer, String>builder()
+                .maximumWeight(64)
+                .concurrencyLevel(1)
+                .build();
+        rejecting.put(1, "a");
+        assertNull(rejecting.getIfPresent(1));
+        assertEquals(1L, rejecting.stats().get("rejected"));
+        assertEquals("a", tiny.getIfPresent(1));
+    }
+}
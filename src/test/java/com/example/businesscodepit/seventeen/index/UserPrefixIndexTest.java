@@ -0,0 +1,67 @@
+package com.example.businesscodepit.seventeen.index;
+
+import com.example.businesscodepit.seventeen.bean.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     前缀计数和 top-K 与暴力扫描的结果一致，返回的是共享表中的同一个 User 对象
+ * @author yaoyong
+ **/
+class UserPrefixIndexTest {
+
+    @Test
+    void matchesBruteForce() {
+        Random random = new Random(42);
+        List<User> users = new ArrayList<>();
+        int[] scores = new int[5000];
+        for (int i = 0; i < scores.length; i++) {
+            users.add(new User(Integer.toString(random.nextInt(100000), 7)));
+            scores[i] = random.nextInt(50);
+        }
+        UserPrefixIndex index = UserPrefixIndex.build(users, scores);
+        for (String prefix : Arrays.asList("", "1", "12", "123", "6543", "99", "1234560")) {
+            List<Integer> expected = IntStream.range(0, users.size())
+                    .filter(id -> users.get(id).getName().startsWith(prefix))
+                    .boxed()
+                    .sorted(Comparator.<Integer>comparingInt(id -> -scores[id])
+                            .thenComparing(id -> users.get(id).getName())
+                            .thenComparingInt(id -> id))
+                    .collect(Collectors.toList());
+            assertEquals(expected.size(), index.count(prefix), prefix);
+            int[] top = index.topKIds(prefix, 20);
+            assertEquals(Math.min(20, expected.size()), top.length, prefix);
+            for (int i = 0; i < top.length; i++) {
+                assertEquals(scores[expected.get(i)], scores[top[i]], prefix);
+                assertEquals(users.get(expected.get(i)).getName(), users.get(top[i]).getName(), prefix);
+            }
+        }
+    }
+
+    @Test
+    void sharesUsersAndOrdersTiesByName() {
+        List<User> users = Arrays.asList(new User("abd"), new User("ab"), new User("b"), new User("abc"), new User("a"));
+        UserPrefixIndex index = UserPrefixIndex.build(users, null);
+        assertArrayEquals(new int[]{1, 3, 0}, index.topKIds("ab", 5));
+        assertSame(users.get(3), index.topK("abc", 1).get(0));
+        assertEquals(0, index.count("abcd"));
+        assertEquals(0, index.topK("c", 3).size());
+        assertTrue(index.estimatedIndexBytes() > 0);
+    }
+}
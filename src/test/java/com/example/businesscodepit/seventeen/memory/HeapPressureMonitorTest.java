@@ -0,0 +1,79 @@
+package com.example.businesscodepit.seventeen.memory;
+
+import com.example.businesscodepit.seventeen.cache.SegmentedLruCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     按命中的水位线选择丢弃比例，间隔内不重复丢弃，启动后 System.gc() 的停顿会记录到对应收集器的统计中
+ * @author yaoyong
+ **/
+class HeapPressureMonitorTest {
+
+    @Test
+    void shedsByWatermark() {
+        HeapPressureMonitor monitor = new HeapPressureMonitor("0.5, 0.8", "0.2, 0.6");
+        AtomicReference<Double> requested = new AtomicReference<>();
+        monitor.register("recorder", fraction -> {
+            requested.set(fraction);
+            return 100;
+        });
+        SegmentedLruCache<Integer, String> cache = SegmentedLruCache.<Integer, String>builder()
+                .concurrencyLevel(1)
+                .weigher((key, value) -> 100)
+                .build();
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "v" + i);
+        }
+        monitor.register("cache", cache::shed);
+
+        assertEquals(-1, monitor.evaluate(40, 100));
+        assertNull(requested.get());
+        assertEquals(1, monitor.evaluate(85, 100));
+        assertEquals(0.6, requested.get());
+        assertEquals(4, cache.estimatedSize());
+        assertEquals(-1, monitor.evaluate(90, 100));
+
+        Map<String, Object> stats = monitor.stats();
+        assertEquals(1L, stats.get("sheds"));
+        assertTrue((Long) stats.get("shedBytes") > 100);
+    }
+
+    @Test
+    void collectsGcStats() throws InterruptedException {
+        HeapPressureMonitor monitor = new HeapPressureMonitor("0.99", "0.1");
+        monitor.start();
+        try {
+            System.gc();
+            //GC 通知由 JMX 的通知线程异步发送，等它送达
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (gcCount(monitor.stats()) == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Map<String, Object> stats = monitor.stats();
+            assertTrue(gcCount(stats) > 0, stats.toString());
+            assertTrue(stats.containsKey("allocationBytesPerSecond"));
+        } finally {
+            monitor.stop();
+        }
+        assertThrows(IllegalArgumentException.class, () -> new HeapPressureMonitor("0.8,0.7", "0.1,0.2"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long gcCount(Map<String, Object> stats) {
+        Map<String, Map<String, Object>> gc = (Map<String, Map<String, Object>>) stats.get("gc");
+        return gc.values().stream().mapToLong(collector -> (Long) collector.get("count")).sum();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.businesscodepit.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     时间序列写满后只保留最近的采样，出错的 gauge 不影响其它 gauge，采样线程按周期运行；维护任务按间隔执行
+ * @author yaoyong
+ **/
+class StatsSamplerTest {
+
+    @Test
+    void keepsLatestSamplesPerGauge() {
+        StatsSampler sampler = new StatsSampler(1000, 3);
+        AtomicInteger value = new AtomicInteger();
+        sampler.register("queue.size", value::incrementAndGet);
+        sampler.register("broken", () -> {
+            throw new IllegalStateException("boom");
+        });
+        for (int i = 0; i < 5; i++) {
+            sampler.sample();
+        }
+        Map<String, Map<String, Object>> snapshot = sampler.snapshot("queue");
+        assertEquals(1, snapshot.size());
+        Map<String, Object> series = snapshot.get("queue.size");
+        assertArrayEquals(new double[]{3, 4, 5}, (double[]) series.get("values"));
+        assertEquals(5L, series.get("samples"));
+        assertEquals(5.0, series.get("last"));
+        assertEquals(5, sampler.getErrors());
+    }
+
+    @Test
+    void runsHousekeepingAtInterval() {
+        StatsSampler sampler = new StatsSampler(1000, 3);
+        AtomicInteger runs = new AtomicInteger();
+        sampler.registerHousekeeping("cache.cleanUp", 60000, runs::incrementAndGet);
+        sampler.registerHousekeeping("broken", 1000, () -> {
+            throw new IllegalStateException("boom");
+        });
+        for (long now = 0; now <= 180000; now += 1000) {
+            sampler.sample(1000000 + now);
+        }
+        assertEquals(3, runs.get());
+        assertEquals(180, sampler.getErrors());
+        sampler.unregister("cache.cleanUp");
+        sampler.sample(2000000);
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    void samplerThreadCollectsThreadPoolStats() throws InterruptedException {
+        StatsSampler sampler = new StatsSampler(10, 100).start();
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new ArrayBlockingQueue<>(10));
+        try {
+            sampler.registerThreadPool("pool", threadPool);
+            threadPool.execute(() -> {
+            });
+            TimeUnit.MILLISECONDS.sleep(200);
+            Map<String, Map<String, Object>> snapshot = sampler.snapshot("pool.");
+            assertEquals(4, snapshot.size());
+            assertTrue((Long) snapshot.get("pool.completedTasks").get("samples") > 1);
+            assertEquals(1.0, snapshot.get("pool.completedTasks").get("last"));
+        } finally {
+            sampler.close();
+            threadPool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.CallerData;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     同一调用点经过 CONFIRMATIONS 次验证之后才命中缓存，行号正确；同一个字面量出现在两个调用点时不会缓存；
+ *     动态拼接的消息不会进入缓存；cachedOrEmpty 只返回已确认的结果，异步 Appender 不收集调用方数据时后台线程拿到的是空数组
+ * @author yaoyong
+ **/
+class CallerDataCacheTest {
+    private final List<StackTraceElement[]> resolved = new ArrayList<>();
+
+    private Logger logger(String name) {
+        LoggerContext context = new LoggerContext();
+        AppenderBase<ILoggingEvent> appender = new AppenderBase<ILoggingEvent>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                resolved.add(CallerDataCache.resolve(event));
+            }
+        };
+        appender.setContext(context);
+        appender.start();
+        Logger logger = context.getLogger(name);
+        logger.addAppender(appender);
+        return logger;
+    }
+
+    @Test
+    void cachesPerCallSiteAfterConfirmation() {
+        Logger logger = logger("cache.callSite");
+        int rounds = CallerDataCache.CONFIRMATIONS + 4;
+        int firstLine = 0;
+        int secondLine = 0;
+        for (int i = 0; i < rounds; i++) {
+            firstLine = new Throwable().getStackTrace()[0].getLineNumber() + 1;
+            logger.info("first {}", i);
+            secondLine = new Throwable().getStackTrace()[0].getLineNumber() + 1;
+            logger.info("second {}", i);
+        }
+        assertEquals(rounds * 2, resolved.size());
+        for (int i = 0; i < rounds * 2; i += 2) {
+            assertEquals(firstLine, resolved.get(i)[0].getLineNumber());
+            assertEquals(secondLine, resolved.get(i + 1)[0].getLineNumber());
+            assertEquals("cachesPerCallSiteAfterConfirmation", resolved.get(i)[0].getMethodName());
+        }
+        //第二次进入缓存，接下来 CONFIRMATIONS 次仍然生成异常栈用来验证，之后才直接返回缓存的同一个数组
+        int confirmed = (CallerDataCache.CONFIRMATIONS + 2) * 2;
+        assertNotSame(resolved.get(confirmed - 2), resolved.get(confirmed));
+        assertSame(resolved.get(confirmed), resolved.get(confirmed + 2));
+        assertSame(resolved.get(confirmed), CallerDataCache.resolve(new LoggingEvent(
+                Logger.class.getName(), logger, Level.INFO, "first {}", null, new Object[]{0})));
+    }
+
+    @Test
+    void sameLiteralAtTwoCallSitesIsNeverCached() {
+        Logger logger = logger("cache.ambiguous");
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < CallerDataCache.CONFIRMATIONS * 3; i++) {
+            //前几次都在第一处记录，让第一处先进入缓存，之后两处交替
+            expected.add(logShared(logger, i < 4 || i % 2 == 0));
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals((int) expected.get(i), resolved.get(i)[0].getLineNumber(), "event " + i);
+        }
+        assertEquals(CallerData.EMPTY_CALLER_DATA_ARRAY, CallerDataCache.cachedOrEmpty(new LoggingEvent(
+                Logger.class.getName(), logger, Level.INFO, "shared", null, null)));
+    }
+
+    private static int logShared(Logger logger, boolean first) {
+        if (first) {
+            logger.info("shared");
+            return new Throwable().getStackTrace()[0].getLineNumber() - 1;
+        }
+        logger.info("shared");
+        return new Throwable().getStackTrace()[0].getLineNumber() - 1;
+    }
+
+    @Test
+    void cachedOrEmptyReturnsOnlyConfirmedFrames() {
+        Logger logger = logger("cache.cachedOrEmpty");
+        LoggingEvent probe = new LoggingEvent(Logger.class.getName(), logger, Level.INFO, "confirm {}", null, new Object[]{0});
+        assertSame(CallerData.EMPTY_CALLER_DATA_ARRAY, CallerDataCache.cachedOrEmpty(probe));
+        int line = 0;
+        //第一次进 probation，第二次进缓存，再验证 CONFIRMATIONS 次才确认
+        for (int i = 0; i < CallerDataCache.CONFIRMATIONS + 2; i++) {
+            assertSame(CallerData.EMPTY_CALLER_DATA_ARRAY, CallerDataCache.cachedOrEmpty(probe));
+            line = new Throwable().getStackTrace()[0].getLineNumber() + 1;
+            logger.info("confirm {}", i);
+        }
+        assertEquals(line, CallerDataCache.cachedOrEmpty(probe)[0].getLineNumber());
+    }
+
+    @Test
+    void asyncAppenderWithoutCallerDataDoesNotWalkWorkerStack() throws Exception {
+        LoggerContext context = new LoggerContext();
+        List<StackTraceElement[]> seen = Collections.synchronizedList(new ArrayList<>());
+        AppenderBase<ILoggingEvent> capture = new AppenderBase<ILoggingEvent>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                seen.add(event.getCallerData());
+            }
+        };
+        capture.setContext(context);
+        capture.start();
+        CachingCallerDataAsyncAppender async = new CachingCallerDataAsyncAppender();
+        async.setContext(context);
+        async.addAppender(capture);
+        async.start();
+        Logger logger = context.getLogger("cache.async");
+        logger.addAppender(async);
+        logger.info("async {}", 1);
+        async.stop();
+        assertEquals(1, seen.size());
+        assertEquals(0, seen.get(0).length);
+    }
+
+    @Test
+    void dynamicMessagesAreNotCached() {
+        Logger logger = logger("cache.dynamic");
+        long before = CallerDataCache.size();
+        for (int i = 0; i < 100; i++) {
+            logger.info("dynamic " + i);
+        }
+        assertEquals(before, CallerDataCache.size());
+        assertEquals(100, resolved.size());
+    }
+}
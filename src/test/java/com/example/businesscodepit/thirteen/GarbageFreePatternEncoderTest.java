@@ -0,0 +1,79 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     输出和使用同样 pattern 的 PatternLayoutEncoder 逐字节一致
+ * @author yaoyong
+ **/
+class GarbageFreePatternEncoderTest {
+    private final LoggerContext context = new LoggerContext();
+    private final PatternLayoutEncoder expected = new PatternLayoutEncoder();
+    private final GarbageFreePatternEncoder actual = new GarbageFreePatternEncoder();
+
+    GarbageFreePatternEncoderTest() {
+        expected.setContext(context);
+        expected.setPattern(GarbageFreePatternEncoder.PATTERN);
+        expected.setCharset(StandardCharsets.UTF_8);
+        expected.start();
+        actual.setContext(context);
+        actual.start();
+    }
+
+    private LoggingEvent event(String loggerName, Level level, String message, Throwable throwable, Object... args) {
+        Logger logger = context.getLogger(loggerName);
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, level, message, throwable, args);
+        event.setThreadName("http-nio-8080-exec-1");
+        return event;
+    }
+
+    @Test
+    void matchesPatternLayoutEncoder() {
+        LoggingEvent[] events = {
+                event("com.example.businesscodepit.thirteen.TestLogController", Level.INFO, "log-{}", null, 1),
+                event("short", Level.WARN, "中文日志 {} {}", null, "a", 2),
+                event("org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter", Level.ERROR,
+                        "failed", new IllegalStateException("boom")),
+                event("x", Level.DEBUG, "no caller", null),
+        };
+        for (LoggingEvent event : events) {
+            assertEquals(new String(expected.encode(event), StandardCharsets.UTF_8), new String(actual.encode(event), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void timestampAcrossSecondsAndMillis() {
+        LoggingEvent event = event("t", Level.INFO, "m", null);
+        for (long timestamp : new long[]{1_600_000_000_000L, 1_600_000_000_007L, 1_600_000_000_999L, 1_600_000_001_050L}) {
+            event.setTimeStamp(timestamp);
+            assertArrayEquals(expected.encode(event), actual.encode(event));
+        }
+    }
+
+    @Test
+    void encodeToReportsOverflow() {
+        LoggingEvent event = event("t", Level.INFO, "m", null);
+        byte[] bytes = expected.encode(event);
+        ByteBuffer small = ByteBuffer.allocate(bytes.length - 1);
+        assertEquals(-1, actual.encodeTo(event, small));
+        assertEquals(0, small.position());
+        ByteBuffer exact = ByteBuffer.allocate(bytes.length);
+        assertEquals(bytes.length, actual.encodeTo(event, exact));
+        assertArrayEquals(bytes, exact.array());
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.read.ListAppender;
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     级别关闭时不求值参数；修改 logback 级别后缓存自动刷新；SLF4J 和 Log4j2 两种底层都能用；
+ *     调用方数据指向调用 LazyLogger 的代码；同一个 logger 只注册一次
+ * @author yaoyong
+ **/
+class LazyLoggerTest {
+
+    private ListAppender<ILoggingEvent> attach(Logger logger) {
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.setContext(logger.getLoggerContext());
+        appender.start();
+        logger.addAppender(appender);
+        return appender;
+    }
+
+    @Test
+    void suppliersOnlyEvaluatedWhenEnabled() {
+        Logger logback = (Logger) LoggerFactory.getLogger("lazy.slf4j");
+        logback.setLevel(Level.INFO);
+        ListAppender<ILoggingEvent> appender = attach(logback);
+        LazyLogger lazyLogger = LazyLogger.of(LoggerFactory.getLogger("lazy.slf4j"));
+        AtomicInteger calls = new AtomicInteger();
+
+        lazyLogger.debug("debug {}", () -> calls.incrementAndGet());
+        assertEquals(0, calls.get());
+        assertFalse(lazyLogger.isDebugEnabled());
+
+        logback.setLevel(Level.DEBUG);
+        assertTrue(lazyLogger.isDebugEnabled());
+        lazyLogger.debug("debug {} {}", () -> calls.incrementAndGet(), () -> "b");
+        lazyLogger.info("primitive {} {}", 1L, 2L);
+        assertEquals(1, calls.get());
+        assertEquals(2, appender.list.size());
+        assertEquals("debug 1 b", appender.list.get(0).getFormattedMessage());
+        assertEquals("primitive 1 2", appender.list.get(1).getFormattedMessage());
+    }
+
+    @Test
+    void followsParentLevelAndLog4j2Backend() {
+        Logger parent = (Logger) LoggerFactory.getLogger("lazy.parent");
+        parent.setLevel(Level.WARN);
+        Logger child = (Logger) LoggerFactory.getLogger("lazy.parent.child");
+        ListAppender<ILoggingEvent> appender = attach(child);
+        LazyLogger lazyLogger = LazyLogger.of(LogManager.getLogger("lazy.parent.child"));
+
+        lazyLogger.info("info {}", true);
+        lazyLogger.warn("warn {}", 1.5);
+        assertEquals(1, appender.list.size());
+        assertEquals("warn 1.5", appender.list.get(0).getFormattedMessage());
+
+        parent.setLevel(Level.TRACE);
+        assertTrue(lazyLogger.isTraceEnabled());
+        lazyLogger.trace("trace");
+        assertEquals(2, appender.list.size());
+    }
+
+    @Test
+    void callerDataPointsAtCallSite() {
+        Logger logback = (Logger) LoggerFactory.getLogger("lazy.caller");
+        logback.setLevel(Level.INFO);
+        List<StackTraceElement> callers = new ArrayList<>();
+        AppenderBase<ILoggingEvent> appender = new AppenderBase<ILoggingEvent>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                callers.add(event.getCallerData()[0]);
+            }
+        };
+        appender.setContext(logback.getLoggerContext());
+        appender.start();
+        logback.addAppender(appender);
+        LazyLogger slf4j = LazyLogger.of(LoggerFactory.getLogger("lazy.caller"));
+        LazyLogger log4j2 = LazyLogger.of(LogManager.getLogger("lazy.caller"));
+
+        int line = new Throwable().getStackTrace()[0].getLineNumber();
+        slf4j.info("message");
+        slf4j.info("format {}", () -> "arg");
+        slf4j.warn("throwable", new IllegalStateException());
+        log4j2.info("message");
+        log4j2.info("format {}", () -> "arg");
+        log4j2.warn("throwable", new IllegalStateException());
+
+        assertEquals(6, callers.size());
+        for (int i = 0; i < callers.size(); i++) {
+            assertEquals(LazyLoggerTest.class.getName(), callers.get(i).getClassName());
+            assertEquals("callerDataPointsAtCallSite", callers.get(i).getMethodName());
+            assertEquals(line + 1 + i, callers.get(i).getLineNumber());
+        }
+    }
+
+    @Test
+    void registersEachLoggerOnce() {
+        org.slf4j.Logger logger = LoggerFactory.getLogger("lazy.registry");
+        LazyLogger first = LazyLogger.of(logger);
+        int registered = LazyLogger.registered();
+        for (int i = 0; i < 100; i++) {
+            assertSame(first, LazyLogger.of(LoggerFactory.getLogger("lazy.registry")));
+        }
+        assertEquals(registered, LazyLogger.registered());
+    }
+}
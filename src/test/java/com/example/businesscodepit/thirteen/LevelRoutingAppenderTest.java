@@ -0,0 +1,115 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.encoder.EchoEncoder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     通过 XML 配置路由：INFO、WARN 写入一个文件，ERROR 写入另一个文件，DEBUG 不输出
+ *     并发记录日志时 stop：每条计入 appended 的日志要么写入文件，要么计入 dropped
+ * @author yaoyong
+ **/
+class LevelRoutingAppenderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void routesByLevelFromXml() throws Exception {
+        String logDir = dir.toString().replace('\\', '/');
+        String xml = "<configuration>"
+                + "<appender name=\"ROUTING\" class=\"com.example.businesscodepit.thirteen.LevelRoutingAppender\">"
+                + "<route><levels>INFO,WARN</levels><file>" + logDir + "/info_warn.log</file></route>"
+                + "<route><threshold>ERROR</threshold><file>" + logDir + "/error.log</file></route>"
+                + "<encoder class=\"com.example.businesscodepit.thirteen.GarbageFreePatternEncoder\"/>"
+                + "</appender>"
+                + "<root level=\"DEBUG\"><appender-ref ref=\"ROUTING\"/></root>"
+                + "</configuration>";
+        LoggerContext context = new LoggerContext();
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(context);
+        configurator.doConfigure(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        Logger logger = context.getLogger("routing");
+        for (int i = 0; i < 1000; i++) {
+            logger.debug("debug-{}", i);
+            logger.info("info-{}", i);
+            logger.warn("warn-{}", i);
+            if (i % 10 == 0) {
+                logger.error("error-{}", i);
+            }
+        }
+        context.stop();
+
+        List<String> infoWarn = Files.readAllLines(dir.resolve("info_warn.log"), StandardCharsets.UTF_8);
+        List<String> error = Files.readAllLines(dir.resolve("error.log"), StandardCharsets.UTF_8);
+        assertEquals(2000, infoWarn.size());
+        assertTrue(infoWarn.get(0).endsWith("- info-0"), infoWarn.get(0));
+        assertTrue(infoWarn.get(1).contains("[WARN ]"), infoWarn.get(1));
+        assertEquals(100, error.size());
+        assertTrue(error.stream().allMatch(line -> line.contains("[ERROR]")));
+    }
+
+    @Test
+    void countsEventsDroppedDuringStop() throws Exception {
+        LoggerContext context = new LoggerContext();
+        LevelRoute route = new LevelRoute();
+        route.setThreshold("INFO");
+        route.setFile(dir.resolve("all.log").toString());
+        EchoEncoder<ILoggingEvent> encoder = new EchoEncoder<>();
+        encoder.setContext(context);
+        encoder.start();
+        LevelRoutingAppender appender = new LevelRoutingAppender();
+        appender.setContext(context);
+        appender.setName("ROUTING");
+        appender.setEncoder(encoder);
+        appender.addRoute(route);
+        appender.setQueueSize(4);
+        appender.start();
+        Logger logger = context.getLogger("routing");
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 20000; i++) {
+                    logger.info("line-{}", i);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        started.await();
+        Thread.sleep(20);
+        appender.stop();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<String, Object> stats = appender.stats();
+        long written = Files.readAllLines(dir.resolve("all.log"), StandardCharsets.UTF_8).size();
+        assertEquals(stats.get("appended"), written + (Long) stats.get("dropped"), stats.toString());
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     段很小、多线程并发写入时日志跨段也不会错乱；追加到已有文件；stop 后文件被截断到实际长度；
+ *     stop 和写入并发时不会在截断后访问映射内存；某一段映射失败时改为按位置写文件，不留空洞
+ * @author yaoyong
+ **/
+class MappedFileAppenderTest {
+    private static final int THREADS = 4;
+    private static final int EVENTS_PER_THREAD = 1000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void concurrentWritesAcrossSegments() throws Exception {
+        Path file = dir.resolve("logs/app.log");
+        Files.createDirectories(file.getParent());
+        Files.write(file, "existing\n".getBytes(StandardCharsets.UTF_8));
+
+        LoggerContext context = new LoggerContext();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%msg%n");
+        encoder.start();
+        MappedFileAppender appender = new MappedFileAppender();
+        appender.setContext(context);
+        appender.setName("mapped");
+        appender.setEncoder(encoder);
+        appender.setFile(file.toString());
+        appender.setSegmentSize(4096);
+        appender.setFlushBytes(1024);
+        appender.start();
+        assertTrue(appender.isStarted());
+        Logger logger = context.getLogger("test");
+        logger.setLevel(Level.INFO);
+        logger.addAppender(appender);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                    logger.info("thread-{}-event-{}", thread, i);
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        appender.stop();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(THREADS * EVENTS_PER_THREAD + 1, lines.size());
+        assertEquals("existing", lines.get(0));
+        Set<String> unique = new HashSet<>(lines.subList(1, lines.size()));
+        assertEquals(THREADS * EVENTS_PER_THREAD, unique.size());
+        assertTrue(unique.contains("thread-3-event-999"));
+        assertTrue((Long) appender.stats().get("mappedSegments") > 1);
+    }
+
+    @Test
+    void garbageFreeEncoderSplitsAcrossSegments() throws Exception {
+        Path file = dir.resolve("gf.log");
+        LoggerContext context = new LoggerContext();
+        GarbageFreePatternEncoder encoder = new GarbageFreePatternEncoder();
+        encoder.setContext(context);
+        encoder.start();
+        MappedFileAppender appender = new MappedFileAppender();
+        appender.setContext(context);
+        appender.setName("mapped");
+        appender.setEncoder(encoder);
+        appender.setFile(file.toString());
+        appender.setSegmentSize(100);
+        appender.start();
+        Logger logger = context.getLogger("test");
+        logger.addAppender(appender);
+        for (int i = 0; i < 100; i++) {
+            logger.info("event-{}", i);
+        }
+        appender.stop();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(100, lines.size());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(lines.get(i).endsWith("] - event-" + i), lines.get(i));
+        }
+    }
+
+    @Test
+    void stopWaitsForInFlightWriters() throws Exception {
+        Path file = dir.resolve("stop.log");
+        MappedFileAppender appender = new MappedFileAppender();
+        Logger logger = start(appender, file, 4096);
+        AtomicBoolean logging = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch started = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            executor.execute(() -> {
+                started.countDown();
+                int i = 0;
+                while (logging.get()) {
+                    logger.info("event-{}", i++);
+                }
+            });
+        }
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        appender.stop();
+        logging.set(false);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals((long) (Long) appender.stats().get("appended"), lines.size());
+        assertTrue(lines.stream().allMatch(line -> line.startsWith("event-")));
+    }
+
+    @Test
+    void failedMappingFallsBackToPositionalWrite() throws Exception {
+        Path file = dir.resolve("fallback.log");
+        MappedFileAppender appender = new MappedFileAppender() {
+            @Override
+            MappedByteBuffer map(long begin) throws IOException {
+                if (begin == 100) {
+                    throw new IOException("simulated mapping failure");
+                }
+                return super.map(begin);
+            }
+        };
+        Logger logger = start(appender, file, 100);
+        for (int i = 0; i < 30; i++) {
+            logger.info("event-{}", i);
+        }
+        appender.stop();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(30, lines.size());
+        for (int i = 0; i < 30; i++) {
+            assertEquals("event-" + i, lines.get(i));
+        }
+        Map<String, Object> stats = appender.stats();
+        assertTrue((Long) stats.get("channelWrites") > 0);
+        assertEquals(0L, stats.get("dropped"));
+    }
+
+    private static Logger start(MappedFileAppender appender, Path file, long segmentSize) {
+        LoggerContext context = new LoggerContext();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%msg%n");
+        encoder.start();
+        appender.setContext(context);
+        appender.setName("mapped");
+        appender.setEncoder(encoder);
+        appender.setFile(file.toString());
+        appender.setSegmentSize(segmentSize);
+        appender.start();
+        assertTrue(appender.isStarted());
+        Logger logger = context.getLogger("test");
+        logger.setLevel(Level.INFO);
+        logger.addAppender(appender);
+        return logger;
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.status.Status;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     队列很小、多线程压满时：写入文件的条数 + 丢弃的条数 = 记录的条数，并且 ERROR 一条都不会丢；
+ *     批量缓冲区不超过 maxBatchBytes，超大日志写完后缩回默认大小；stop 过程中记录的日志要么写入，要么计入丢弃；
+ *     编码抛出异常的日志计入丢弃，后台线程继续工作
+ * @author yaoyong
+ **/
+class RingBufferAsyncAppenderTest {
+    private static final int THREADS = 4;
+    private static final int EVENTS_PER_THREAD = 2000;
+
+    @TempDir
+    Path dir;
+
+    private Logger start(RingBufferAsyncAppender.Policy policy, RingBufferAsyncAppender appender) {
+        LoggerContext context = new LoggerContext();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%level %msg%n");
+        encoder.start();
+        appender.setContext(context);
+        appender.setName("ring");
+        appender.setEncoder(encoder);
+        appender.setFile(dir.resolve("app.log").toString());
+        appender.setBufferSize(16);
+        appender.setBatchSize(4);
+        appender.setPolicy(policy);
+        appender.start();
+        Logger logger = context.getLogger("test");
+        logger.setLevel(Level.INFO);
+        logger.addAppender(appender);
+        return logger;
+    }
+
+    private List<String> run(RingBufferAsyncAppender.Policy policy, RingBufferAsyncAppender appender) throws Exception {
+        Logger logger = start(policy, appender);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                    if (i % 100 == 0) {
+                        logger.error("error-{}", i);
+                    } else {
+                        logger.info("info-{}", i);
+                    }
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        appender.stop();
+        return Files.readAllLines(dir.resolve("app.log"), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void blockPolicyWritesEverything() throws Exception {
+        RingBufferAsyncAppender appender = new RingBufferAsyncAppender();
+        List<String> lines = run(RingBufferAsyncAppender.Policy.BLOCK, appender);
+        assertEquals(THREADS * EVENTS_PER_THREAD, lines.size());
+        assertEquals(0, appender.getDroppedCount());
+    }
+
+    @Test
+    void dropBelowWarnKeepsErrorsAndCountsDrops() throws Exception {
+        RingBufferAsyncAppender appender = new RingBufferAsyncAppender();
+        List<String> lines = run(RingBufferAsyncAppender.Policy.DROP_BELOW_WARN, appender);
+        assertEquals(THREADS * EVENTS_PER_THREAD, lines.size() + appender.getDroppedCount());
+        assertEquals(THREADS * EVENTS_PER_THREAD / 100, lines.stream().filter(line -> line.startsWith("ERROR")).count());
+    }
+
+    @Test
+    void spillPolicyNeverDrops() throws Exception {
+        RingBufferAsyncAppender appender = new RingBufferAsyncAppender();
+        List<String> lines = run(RingBufferAsyncAppender.Policy.SPILL_TO_DISK, appender);
+        List<String> spilled = Files.readAllLines(dir.resolve("app.log.spill"), StandardCharsets.UTF_8);
+        assertEquals(THREADS * EVENTS_PER_THREAD, lines.size() + spilled.size());
+        assertEquals(spilled.size(), appender.getSpilledCount());
+        assertEquals(0, appender.getDroppedCount());
+    }
+
+    @Test
+    void batchBufferIsCappedAndShrinksAfterOversizedEvent() throws Exception {
+        RingBufferAsyncAppender appender = new RingBufferAsyncAppender();
+        appender.setMaxBatchBytes(4096);
+        Logger logger = start(RingBufferAsyncAppender.Policy.BLOCK, appender);
+        StringBuilder kilobyte = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            kilobyte.append('k');
+        }
+        StringBuilder huge = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            huge.append(kilobyte);
+        }
+        for (int i = 0; i < 100; i++) {
+            logger.info(kilobyte.toString());
+        }
+        logger.info(huge.toString());
+        logger.info("after");
+        appender.stop();
+        assertEquals(4096, appender.batchCapacity());
+        List<String> lines = Files.readAllLines(dir.resolve("app.log"), StandardCharsets.UTF_8);
+        assertEquals(102, lines.size());
+        assertEquals("INFO " + huge, lines.get(100));
+        assertEquals("INFO after", lines.get(101));
+    }
+
+    @Test
+    void eventsAppendedDuringStopAreWrittenOrCounted() throws Exception {
+        RingBufferAsyncAppender appender = new RingBufferAsyncAppender();
+        Logger logger = start(RingBufferAsyncAppender.Policy.DROP_BELOW_WARN, appender);
+        AtomicBoolean logging = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch started = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            executor.execute(() -> {
+                started.countDown();
+                int i = 0;
+                while (logging.get()) {
+                    logger.warn("warn-{}", i++);
+                }
+            });
+        }
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        appender.stop();
+        logging.set(false);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Map<String, Object> stats = appender.stats();
+        long written = (Long) stats.get("written");
+        assertEquals((long) stats.get("appended"), written + (long) stats.get("dropped"));
+        assertEquals(0L, stats.get("queued"));
+        assertEquals(written, Files.readAllLines(dir.resolve("app.log"), StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    void encoderFailureDoesNotKillWriter() throws Exception {
+        LoggerContext context = new LoggerContext();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder() {
+            @Override
+            public byte[] encode(ILoggingEvent event) {
+                if (event.getMessage().startsWith("boom")) {
+                    throw new IllegalStateException("broken converter");
+                }
+                return super.encode(event);
+            }
+        };
+        encoder.setContext(context);
+        encoder.setPattern("%level %msg%n");
+        encoder.start();
+        RingBufferAsyncAppender appender = new RingBufferAsyncAppender();
+        appender.setContext(context);
+        appender.setName("ring");
+        appender.setEncoder(encoder);
+        appender.setFile(dir.resolve("app.log").toString());
+        appender.setBufferSize(16);
+        appender.setBatchSize(4);
+        appender.setPolicy(RingBufferAsyncAppender.Policy.BLOCK);
+        appender.start();
+        Logger logger = context.getLogger("test");
+        logger.addAppender(appender);
+
+        //远多于队列容量，后台线程一旦退出，BLOCK 策略下这里就会一直阻塞
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            for (int i = 0; i < 1000; i++) {
+                logger.info(i % 10 == 0 ? "boom-{}" : "info-{}", i);
+            }
+        });
+        appender.stop();
+
+        assertEquals(900, Files.readAllLines(dir.resolve("app.log"), StandardCharsets.UTF_8).size());
+        assertEquals(100, appender.getDroppedCount());
+        assertTrue(context.getStatusManager().getCopyOfStatusList().stream()
+                .anyMatch(status -> status.getLevel() == Status.ERROR && status.getMessage().startsWith("Failed to encode")));
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.businesscodepit.thirteen;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     采样规则对子 logger 生效，只影响设置了采样率的级别，级别查询不计数，取消后恢复全量输出；OFF、ALL 不能设置采样
+ * @author yaoyong
+ **/
+class SamplingTurboFilterTest {
+
+    @Test
+    void samplesConfiguredLevelOfDescendants() {
+        LoggerContext loggerContext = new LoggerContext();
+        SamplingTurboFilter filter = SamplingTurboFilter.install(loggerContext);
+        assertSame(filter, SamplingTurboFilter.install(loggerContext));
+        Logger logger = loggerContext.getLogger("sample.child");
+        logger.setLevel(Level.DEBUG);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.setContext(loggerContext);
+        appender.start();
+        logger.addAppender(appender);
+
+        filter.setRate("sample", Level.INFO, 10);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(logger.isInfoEnabled());
+            logger.info("info {}", i);
+            logger.warn("warn {}", i);
+        }
+        long infos = appender.list.stream().filter(event -> event.getLevel() == Level.INFO).count();
+        assertEquals(10, infos);
+        assertEquals(100, appender.list.size() - infos);
+        assertEquals(90L, filter.rules().get("sample").get("sampledOut"));
+
+        filter.setRate("sample", Level.INFO, 1);
+        assertTrue(filter.rules().isEmpty());
+        appender.list.clear();
+        for (int i = 0; i < 10; i++) {
+            logger.info("info {}", i);
+        }
+        assertEquals(10, appender.list.size());
+    }
+
+    @Test
+    void disabledLevelDoesNotConsumeSamples() {
+        LoggerContext loggerContext = new LoggerContext();
+        SamplingTurboFilter filter = SamplingTurboFilter.install(loggerContext);
+        Logger logger = loggerContext.getLogger("quiet");
+        logger.setLevel(Level.WARN);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.setContext(loggerContext);
+        appender.start();
+        logger.addAppender(appender);
+
+        filter.setRate(Logger.ROOT_LOGGER_NAME, Level.DEBUG, 2);
+        for (int i = 0; i < 5; i++) {
+            logger.debug("debug {}", i);
+        }
+        logger.setLevel(Level.DEBUG);
+        logger.debug("first");
+        logger.debug("second");
+        logger.debug("third");
+        assertEquals(2, appender.list.size());
+        assertEquals("first", appender.list.get(0).getMessage());
+        assertEquals("third", appender.list.get(1).getMessage());
+    }
+
+    @Test
+    void rejectsOffAndAll() {
+        SamplingTurboFilter filter = SamplingTurboFilter.install(new LoggerContext());
+        assertThrows(IllegalArgumentException.class, () -> filter.setRate("sample", Level.OFF, 10));
+        assertThrows(IllegalArgumentException.class, () -> filter.setRate("sample", Level.ALL, 10));
+        assertTrue(filter.rules().isEmpty());
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.businesscodepit.three;
 
+import com.example.businesscodepit.stats.StatsSampler;
 import jodd.util.concurrent.ThreadFactoryBuilder;
+import org.junit.After;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +28,7 @@ import java.util.stream.IntStream;
  **/
 public class ThreadPoolTest {
     private Logger log = LoggerFactory.getLogger(ThreadPoolTest.class);
+    private final StatsSampler statsSampler = new StatsSampler(1000, 120).start();
     /**
      * newFixedThreadPool   只有一个参数:执行线程数  队列默认采取的是无限制的LinkedBlockingQueue
      * newCachedThreadPool  来一个请求就创建一个线程执行任务
@@ -53,15 +56,17 @@ public class ThreadPoolTest {
         threadPool.awaitTermination(1, TimeUnit.HOURS);
     }
 
+    /**
+     * 线程池的指标交给 StatsSampler 每秒采样一次，测试结束时一次性输出整段时间序列
+     */
     private void printStats(ThreadPoolExecutor threadPool) {
-        Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(() -> {
-            log.info("=========================");
-            log.info("Pool Size: {}", threadPool.getPoolSize());
-            log.info("Active Threads: {}", threadPool.getActiveCount());
-            log.info("Number of Tasks Completed: {}", threadPool.getCompletedTaskCount());
-            log.info("Number of Tasks in Queue: {}", threadPool.getQueue().size());
-            log.info("=========================");
-        }, 0, 1, TimeUnit.SECONDS);
+        statsSampler.registerThreadPool("threadPool", threadPool);
+    }
+
+    @After
+    public void dumpStats() {
+        statsSampler.snapshot("threadPool").forEach((name, series) -> log.info("{}: {}", name, series.get("values")));
+        statsSampler.close();
     }
 
     /**
@@ -0,0 +1,92 @@
+package com.example.businesscodepit.twelve.handle;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/17
+ * 修改时间：
+ *     预编码的响应和流式序列化的响应输出的 JSON 完全一致；流式序列化不会关闭容器的响应输出流
+ * @author yaoyong
+ **/
+class APIResponseHttpMessageConverterTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final APIResponseHttpMessageConverter converter = new APIResponseHttpMessageConverter(objectMapper);
+
+    @Test
+    void constantWritesPreEncodedBytes() throws Exception {
+        APIResponse response = APIResponse.constant(false, 2000, "服务器忙，请稍后再试");
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(response, MediaType.APPLICATION_JSON, output);
+        String expected = "{\"success\":false,\"data\":null,\"code\":2000,\"message\":\"服务器忙，请稍后再试\"}";
+        assertEquals(expected, output.getBodyAsString(StandardCharsets.UTF_8));
+        assertEquals(expected.getBytes(StandardCharsets.UTF_8).length, output.getHeaders().getContentLength());
+        assertEquals(expected, objectMapper.writeValueAsString(response));
+    }
+
+    @Test
+    void streamsResponseWithData() throws Exception {
+        APIResponse response = new APIResponse(true, Collections.singletonMap("id", 1), 0, "ok");
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(response, MediaType.APPLICATION_JSON, output);
+        assertEquals("{\"success\":true,\"data\":{\"id\":1},\"code\":0,\"message\":\"ok\"}",
+                output.getBodyAsString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void streamingDoesNotCloseResponseBody() throws Exception {
+        ServletLikeOutputMessage output = new ServletLikeOutputMessage();
+        converter.write(new APIResponse(true, "data", 0, "ok"), MediaType.APPLICATION_JSON, output);
+        assertFalse(output.closed);
+        assertEquals("{\"success\":true,\"data\":\"data\",\"code\":0,\"message\":\"ok\"}",
+                new String(output.body.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 记录响应输出流有没有被关闭，Servlet 容器的输出流关闭之后就不能再写了
+     */
+    private static final class ServletLikeOutputMessage implements HttpOutputMessage {
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private boolean closed;
+
+        @Override
+        public OutputStream getBody() {
+            return new OutputStream() {
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    body.write(b, off, len);
+                }
+
+                @Override
+                public void close() {
+                    closed = true;
+                }
+            };
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.businesscodepit.twelve.handle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     异常比例超过阈值后打开，冷却后半开试探，试探全部成功关闭，试探失败重新打开
+ * @author yaoyong
+ **/
+class CircuitBreakerTest {
+    private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+    private final CircuitBreaker breaker = new CircuitBreaker("test", now::get);
+
+    private void trip() {
+        for (int i = 0; i < CircuitBreaker.MINIMUM_CALLS; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        for (int i = 0; i < CircuitBreaker.MINIMUM_CALLS - 1; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void opensAndRejects() {
+        trip();
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1L, breaker.snapshot().get("rejected"));
+    }
+
+    @Test
+    void halfOpenClosesAfterSuccessfulProbes() {
+        trip();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(CircuitBreaker.OPEN_MILLIS));
+        for (int i = 0; i < CircuitBreaker.HALF_OPEN_CALLS; i++) {
+            assertTrue(breaker.tryAcquire());
+        }
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        for (int i = 0; i < CircuitBreaker.HALF_OPEN_CALLS; i++) {
+            breaker.onSuccess();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0L, breaker.snapshot().get("failures"));
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void halfOpenReopensOnFailure() {
+        trip();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(CircuitBreaker.OPEN_MILLIS));
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+}
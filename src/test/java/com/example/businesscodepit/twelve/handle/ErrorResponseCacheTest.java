@@ -0,0 +1,53 @@
+package com.example.businesscodepit.twelve.handle;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     同一个错误码 + 错误信息复用同一个预先编码的响应，错误信息为 null 也可以缓存；缓存满了之后返回不预先编码的响应
+ * @author yaoyong
+ **/
+class ErrorResponseCacheTest {
+
+    @Test
+    void reusesEncodedResponse() {
+        ErrorResponseCache cache = new ErrorResponseCache();
+        APIResponse first = cache.get(1001, "库存不足");
+        assertSame(first, cache.get(1001, new String("库存不足")));
+        assertNotSame(first, cache.get(1002, "库存不足"));
+        assertNotSame(first, cache.get(1001, "余额不足"));
+        assertFalse(first.isSuccess());
+        assertEquals(1001, first.getCode());
+        assertNotNull(first.getEncoded());
+        assertEquals("{\"success\":false,\"data\":null,\"code\":1001,\"message\":\"库存不足\"}", first.getEncoded().getValue());
+    }
+
+    @Test
+    void cachesNullMessage() {
+        ErrorResponseCache cache = new ErrorResponseCache();
+        assertSame(cache.get(1003, null), cache.get(1003, null));
+    }
+
+    @Test
+    void doesNotPreEncodeBeyondCapacity() {
+        ErrorResponseCache cache = new ErrorResponseCache();
+        for (int i = 0; i < ErrorResponseCache.MAX_ENTRIES; i++) {
+            assertNotNull(cache.get(i, "动态错误 " + i).getEncoded());
+        }
+        APIResponse overflow = cache.get(-1, "动态错误");
+        assertNull(overflow.getEncoded());
+        assertEquals(-1, overflow.getCode());
+        assertEquals("动态错误", overflow.getMessage());
+        assertSame(cache.get(0, "动态错误 0"), cache.get(0, "动态错误 0"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.businesscodepit.twelve.handle;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     每个错误码每个周期最多完整记录 permitsPerSecond 条，下一个周期输出抑制数汇总；统计窗口数量有上限，空闲窗口会被清理
+ * @author yaoyong
+ **/
+class SampledExceptionLoggerTest {
+    private final AtomicLong now = new AtomicLong();
+    private ListAppender<ILoggingEvent> appender;
+    private SampledExceptionLogger sampled;
+
+    @BeforeEach
+    void setUp() {
+        LoggerContext context = new LoggerContext();
+        Logger logger = context.getLogger("sampled");
+        appender = new ListAppender<>();
+        appender.setContext(context);
+        appender.start();
+        logger.addAppender(appender);
+        sampled = new SampledExceptionLogger(logger, 2, now::get);
+    }
+
+    @Test
+    void limitsPerCodeAndReportsSuppressed() {
+        for (int i = 0; i < 5; i++) {
+            sampled.warn(1001, "访问 {} -> {} 出现业务异常！", "/a", "m", new BusinessException("x", 1001));
+        }
+        sampled.warn(1002, "访问 {} -> {} 出现业务异常！", "/b", "m", new BusinessException("y", 1002));
+        assertEquals(3, appender.list.size());
+        assertNotNull(appender.list.get(0).getThrowableProxy());
+        assertEquals("访问 /a -> m 出现业务异常！", appender.list.get(0).getFormattedMessage());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        sampled.warn(1001, "访问 {} -> {} 出现业务异常！", "/a", "m", new BusinessException("x", 1001));
+        assertEquals(5, appender.list.size());
+        assertEquals("错误码 1001 的业务异常在上一个统计周期内被抑制了 3 条", appender.list.get(3).getFormattedMessage());
+        assertEquals("访问 /a -> m 出现业务异常！", appender.list.get(4).getFormattedMessage());
+    }
+
+    @Test
+    void boundsTrackedCodes() {
+        for (int code = 0; code < SampledExceptionLogger.MAX_CODES * 2; code++) {
+            sampled.warn(code, "{}{}", "a", "b", null);
+        }
+        assertEquals(SampledExceptionLogger.MAX_CODES, sampled.trackedCodes());
+        //溢出的错误码共用一个窗口限流
+        assertEquals(SampledExceptionLogger.MAX_CODES + 2, appender.list.size());
+
+        //空闲足够久的窗口被清理，新的错误码重新获得自己的窗口
+        now.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        appender.list.clear();
+        sampled.warn(-1, "{}{}", "a", "b", null);
+        assertEquals(1, sampled.trackedCodes());
+        assertTrue(appender.list.size() >= 1);
+    }
+}
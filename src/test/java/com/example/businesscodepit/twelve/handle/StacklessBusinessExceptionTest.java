@@ -0,0 +1,43 @@
+package com.example.businesscodepit.twelve.handle;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     不收集异常栈，错误码和错误信息照常保留，序列化后仍然可用
+ * @author yaoyong
+ **/
+class StacklessBusinessExceptionTest {
+
+    @Test
+    void hasNoStackTrace() {
+        StacklessBusinessException ex = new StacklessBusinessException("库存不足", 1001);
+        assertEquals(0, ex.getStackTrace().length);
+        assertEquals(1001, ex.getCode());
+        assertEquals("库存不足", ex.getMessage());
+        assertEquals("库存不足", ex.getMsg());
+    }
+
+    @Test
+    void survivesSerialization() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new StacklessBusinessException("库存不足", 1001));
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            StacklessBusinessException ex = (StacklessBusinessException) in.readObject();
+            assertEquals(1001, ex.getCode());
+            assertEquals(0, ex.getStackTrace().length);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.businesscodepit.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 描述：
+ * <p>
+ * 创建时间：2026/10/18
+ * 修改时间：
+ *     容量取整、队满拒绝、先进先出，以及多个生产者并发写入时每个元素恰好被消费一次
+ * @author yaoyong
+ **/
+class MpscRingBufferTest {
+
+    @Test
+    void boundedFifo() {
+        MpscRingBuffer<Integer> queue = new MpscRingBuffer<>(3);
+        assertEquals(4, queue.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(4, queue.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, queue.poll());
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.offer(5));
+        assertEquals(5, queue.poll());
+    }
+
+    @Test
+    void multipleProducersDeliverEachElementOnce() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 50000;
+        MpscRingBuffer<Integer> queue = new MpscRingBuffer<>(1024);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!queue.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        boolean[] seen = new boolean[producers * perProducer];
+        int[] lastPerProducer = new int[producers];
+        Arrays.fill(lastPerProducer, -1);
+        for (int received = 0; received < seen.length; ) {
+            Integer value = queue.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            assertFalse(seen[value]);
+            seen[value] = true;
+            //同一个生产者写入的元素保持顺序
+            int producer = value / perProducer;
+            assertTrue(value > lastPerProducer[producer]);
+            lastPerProducer[producer] = value;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(queue.poll());
+    }
+}